@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipIndex;
+import ru.yandex.practicum.filmorate.storage.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Общее состояние бенчмарков: приложение на встроенной H2 в памяти и синтетический набор данных
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDate BIRTHDAY = LocalDate.of(1990, 1, 1);
+    private static final int MPA_COUNT = 5;
+    private static final int GENRE_COUNT = 6;
+
+    @Param({"1000"})
+    public int films;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"10"})
+    public int likesPerFilm;
+
+    @Param({"20"})
+    public int friendsPerUser;
+
+    // Пользователь без лайков и друзей для бенчмарков, изменяющих данные
+    public int probeUserId;
+
+    public ConfigurableApplicationContext context;
+    public FilmDbStorage filmStorage;
+    public UserDbStorage userStorage;
+    public LikesDbStorage likesStorage;
+    public FriendDbStorage friendStorage;
+    public FriendshipIndex friendshipIndex;
+    public FilmCache filmCache;
+    public ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:filmorate-benchmark;DB_CLOSE_DELAY=-1",
+                        "logging.level.ru.yandex.practicum=WARN",
+                        "logging.level.org.zalando.logbook=WARN")
+                .run();
+
+        filmStorage = context.getBean(FilmDbStorage.class);
+        userStorage = context.getBean(UserDbStorage.class);
+        likesStorage = context.getBean(LikesDbStorage.class);
+        friendStorage = context.getBean(FriendDbStorage.class);
+        friendshipIndex = context.getBean(FriendshipIndex.class);
+        filmCache = context.getBean(FilmCache.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public int randomFilmId(Random random) {
+        return random.nextInt(films) + 1;
+    }
+
+    public int randomUserId(Random random) {
+        return random.nextInt(users) + 1;
+    }
+
+    // Фильмы и пользователи добавляются через хранилища, лайки и дружба - пакетно, после чего пересчитываются rate
+    private void seed() {
+        Random random = new Random(42);
+
+        for (int i = 1; i <= films; i++) {
+            Film film = new Film(null, "film" + i, "description" + i, RELEASE_DATE.plusDays(i % 3650), 90 + i % 90, 0,
+                    new MPA(i % MPA_COUNT + 1, null));
+            film.setGenre(Set.of(new Genre(i % GENRE_COUNT + 1, null), new Genre((i + 3) % GENRE_COUNT + 1, null)));
+            filmStorage.add(film);
+        }
+        for (int i = 1; i <= users; i++) {
+            userStorage.add(new User(null, "user" + i + "@yandex.ru", "login" + i, "name" + i, BIRTHDAY.plusDays(i % 3650)));
+        }
+        probeUserId = userStorage.add(new User(null, "probe@yandex.ru", "probe", "probe", BIRTHDAY)).getId();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> likes = new ArrayList<>();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            // Число лайков убывает с ID фильма, чтобы рейтинг популярности не был плоским
+            int count = Math.min(users, Math.max(1, likesPerFilm * 2 * (films - filmId + 1) / films));
+            int start = random.nextInt(users);
+            for (int j = 0; j < count; j++) {
+                likes.add(new Object[]{filmId, (start + j) % users + 1});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+        jdbcTemplate.update("UPDATE films f SET rate = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)");
+
+        List<Object[]> friendships = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> friends = new HashSet<>();
+            while (friends.size() < Math.min(friendsPerUser, users - 1)) {
+                int friendId = random.nextInt(users) + 1;
+                if (friendId != userId && friends.add(friendId)) {
+                    friendships.add(new Object[]{userId, friendId});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", friendships);
+
+        context.getBean(PopularityIndex.class).load();
+        friendshipIndex.load();
+        filmCache.clear();
+    }
+}
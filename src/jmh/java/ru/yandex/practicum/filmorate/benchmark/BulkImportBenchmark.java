@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Добавление пачки фильмов по одному и пакетно. Каталог растет с каждой итерацией
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BulkImportBenchmark {
+
+    @Param({"1000"})
+    public int batch;
+
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            Film film = new Film(null, "bulk" + i, "description" + i, LocalDate.of(2000, 1, 1), 90, 0, new MPA(i % 5 + 1, null));
+            film.setGenre(Set.of(new Genre(i % 6 + 1, null)));
+            films.add(film);
+        }
+    }
+
+    @Benchmark
+    public int addEach(BenchmarkState state) {
+        int last = 0;
+        for (Film film : films) {
+            last = state.filmStorage.add(film).getId();
+        }
+        return last;
+    }
+
+    @Benchmark
+    public List<Integer> addAll(BenchmarkState state) {
+        return state.filmStorage.addAll(films);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Чтение фильмов из FilmDbStorage: весь каталог, фильм из кэша и фильм мимо кэша
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmStorageBenchmark {
+
+    @Benchmark
+    public List<Film> getAll(BenchmarkState state) {
+        return state.filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Film getCached(BenchmarkState state) {
+        return state.filmStorage.get(state.randomFilmId(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public Film getUncached(BenchmarkState state) {
+        int id = state.randomFilmId(ThreadLocalRandom.current());
+        state.filmCache.invalidate(id);
+        return state.filmStorage.get(id);
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Списки друзей, общих друзей и рекомендации друзей из FriendDbStorage
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FriendBenchmark {
+
+    @Benchmark
+    public List<User> getAllFriends(BenchmarkState state) {
+        return state.friendStorage.getAllFriends(state.randomUserId(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(BenchmarkState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return state.friendStorage.getCommonFriends(state.randomUserId(random), state.randomUserId(random));
+    }
+
+    // Рекомендации без кэша: обход друзей друзей по индексу дружбы
+    @Benchmark
+    public List<MutualFriendsCount> getSuggestions(BenchmarkState state) {
+        return state.friendshipIndex.getSuggestions(state.randomUserId(ThreadLocalRandom.current()), 10, 100_000);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Лайки и популярные фильмы из LikesDbStorage
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LikesBenchmark {
+
+    @Param({"10"})
+    public int count;
+
+    // Лайк ставится и сразу снимается, чтобы набор данных не менялся между итерациями
+    @Benchmark
+    public LikeResult likeAndDislike(BenchmarkState state) {
+        state.likesStorage.likeFilm(1, state.probeUserId);
+        return state.likesStorage.dislikeFilm(1, state.probeUserId);
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilms(BenchmarkState state) {
+        return state.likesStorage.getMostPopularFilms(count, FilmProjection.FULL);
+    }
+}
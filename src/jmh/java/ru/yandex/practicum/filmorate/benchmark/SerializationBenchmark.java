@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация в JSON тем же ObjectMapper, что используется контроллерами
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"100"})
+    public int batch;
+
+    private List<Film> films;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        films = state.filmStorage.getPage(0, batch);
+        users = state.userStorage.getPage(0, batch);
+    }
+
+    @Benchmark
+    public byte[] serializeFilm(BenchmarkState state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(films.get(0));
+    }
+
+    @Benchmark
+    public byte[] serializeFilms(BenchmarkState state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public byte[] serializeUser(BenchmarkState state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(users.get(0));
+    }
+
+    @Benchmark
+    public byte[] serializeUsers(BenchmarkState state) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.IngestionStats;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.IngestionService;
+import ru.yandex.practicum.filmorate.service.LikesService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+
+@RestController
+@Slf4j
+@RequestMapping("/admin")
+@Data
+public class AdminController {
+
+    private final FilmService filmService;
+    private final GenreService genreService;
+    private final MpaService mpaService;
+    private final LikesService likesService;
+    private final IngestionService ingestionService;
+
+    @Autowired
+    public AdminController(FilmService filmService, GenreService genreService, MpaService mpaService, LikesService likesService,
+                           IngestionService ingestionService) {
+        this.filmService = filmService;
+        this.genreService = genreService;
+        this.mpaService = mpaService;
+        this.likesService = likesService;
+        this.ingestionService = ingestionService;
+    }
+
+    // Получить статистику кэша фильмов (попадания, промахи, вытеснения)
+    @GetMapping("/cache/films")
+    public CacheStats getFilmCacheStats() {
+        log.debug("AdminController: Получен запрос на получение статистики кэша фильмов.");
+        return filmService.getCacheStats();
+    }
+
+    // Получить состояние очереди асинхронной записи лайков и дружбы (глубина, задержка, счетчики)
+    @GetMapping("/ingestion")
+    public IngestionStats getIngestionStats() {
+        log.debug("AdminController: Получен запрос на получение состояния очереди асинхронной записи.");
+        return ingestionService.getStats();
+    }
+
+    // Перечитать справочники жанров и рейтингов из БД
+    @PostMapping("/reference-data/refresh")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void refreshReferenceData() {
+        log.debug("AdminController: Получен запрос на обновление справочников жанров и рейтингов.");
+        genreService.refresh();
+        mpaService.refresh();
+    }
+
+    // Пересчитать rate всех фильмов по записям film_likes (восстановление после аварийного завершения)
+    @PostMapping("/likes/recompute-rates")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void recomputeRates() {
+        log.debug("AdminController: Получен запрос на пересчет rate всех фильмов по количеству лайков.");
+        likesService.recomputeRates();
+    }
+}
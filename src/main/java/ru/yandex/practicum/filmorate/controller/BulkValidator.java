@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Component
+@Slf4j
+public class BulkValidator {
+
+    private final Validator validator;
+
+    @Autowired
+    public BulkValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    // Проверить элементы списка параллельно: сначала аннотации валидации, затем check (возвращает текст ошибки или null).
+    // Возвращает ошибки по номеру элемента в списке, элементы null пропускаются
+    public <T> Map<Integer, String> validateAll(List<T> items, Function<T, String> check) {
+        log.debug("BulkValidator: Поступил запрос на валидацию списка размером {}.", items.size());
+        Map<Integer, String> errors = new ConcurrentHashMap<>();
+        IntStream.range(0, items.size())
+                .parallel()
+                .filter(i -> items.get(i) != null)
+                .forEach(i -> {
+                    String error = validate(items.get(i), check);
+                    if (error != null) {
+                        errors.put(i, error);
+                    }
+                });
+        return errors;
+    }
+
+    private <T> String validate(T item, Function<T, String> check) {
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        return check.apply(item);
+    }
+}
@@ -1,14 +1,38 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.BulkResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @Slf4j
@@ -16,13 +40,17 @@ import java.util.List;
 @Data
 public class FilmController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final FilmService filmService;
     private final FilmValidator filmValidator;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService, FilmValidator filmValidator) {
+    public FilmController(FilmService filmService, FilmValidator filmValidator, ObjectMapper objectMapper) {
         this.filmService = filmService;
         this.filmValidator = filmValidator;
+        this.objectMapper = objectMapper;
     }
 
     // Получить список всех фильмов
@@ -32,19 +60,136 @@ public class FilmController {
         return filmService.getAll();
     }
 
+    // Получить список всех фильмов только с полями из параметра fields
+    @GetMapping(params = {"fields", "!limit", "!ids"})
+    public List<Map<String, Object>> getAll(@RequestParam String fields) {
+        log.debug("FilmController: Получен запрос на получение списка всех фильмов с полями {}.", fields);
+        FilmProjection projection = FilmProjection.parse(fields);
+        return apply(projection, filmService.getAll(projection));
+    }
+
+    // Получить фильмов по списку ID (ids=1,2,3)
+    @GetMapping(params = {"ids", "!fields"})
+    public MultiGetResult<Film> getByIds(@RequestParam List<Integer> ids) {
+        log.debug("FilmController: Получен запрос на получение фильмов по списку ID {}.", ids);
+        RequestParameterValidator.validateIdsParameter(ids);
+        return filmService.getByIds(ids);
+    }
+
+    // Получить фильмы по списку ID только с полями из параметра fields
+    @GetMapping(params = {"ids", "fields"})
+    public MultiGetResult<Map<String, Object>> getByIds(@RequestParam List<Integer> ids, @RequestParam String fields) {
+        log.debug("FilmController: Получен запрос на получение фильмов по списку ID {} с полями {}.", ids, fields);
+        RequestParameterValidator.validateIdsParameter(ids);
+        FilmProjection projection = FilmProjection.parse(fields);
+        MultiGetResult<Film> result = filmService.getByIds(ids, projection);
+        return new MultiGetResult<>(apply(projection, result.getItems()), result.getMissingIds());
+    }
+
+    // Получить страницу фильмов с ID больше after
+    @GetMapping(params = {"limit", "!ids", "!fields"})
+    public Page<Film> getPage(@RequestParam Integer limit, @RequestParam(defaultValue = "0") Integer after) {
+        log.debug("FilmController: Получен запрос на получение страницы фильмов с ID больше {} размером {}.", after, limit);
+        RequestParameterValidator.validatePageParameters(limit, after);
+        return filmService.getPage(after, limit);
+    }
+
+    // Получить страницу фильмов с ID больше after только с полями из параметра fields
+    @GetMapping(params = {"limit", "!ids", "fields"})
+    public Page<Map<String, Object>> getPage(@RequestParam Integer limit, @RequestParam(defaultValue = "0") Integer after,
+                                             @RequestParam String fields) {
+        log.debug("FilmController: Получен запрос на получение страницы фильмов с ID больше {} размером {} с полями {}.", after, limit, fields);
+        RequestParameterValidator.validatePageParameters(limit, after);
+        FilmProjection projection = FilmProjection.parse(fields);
+        Page<Film> page = filmService.getPage(after, limit, projection);
+        return new Page<>(apply(projection, page.getItems()), page.getNextCursor());
+    }
+
+    // Выгрузить все фильмы потоком в формате NDJSON (один фильм на строку)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        log.debug("FilmController: Получен запрос на выгрузку всех фильмов.");
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            try {
+                filmService.exportAll(film -> writeLine(generator, film));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.close();
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
     // Добавить фильм
     @PostMapping
     public Film add(@Valid @RequestBody Film film) {
         log.debug("FilmController: Получен запрос на добавление фильма {}.", film.getName());
         filmValidator.validateFilmReleaseDate(film);
+        filmValidator.validateFilmMpaAndGenres(film);
         return filmService.add(film);
     }
 
+    // Добавить фильмы из JSON-массива, массив читается поэлементно и чтение прекращается при превышении лимита записей
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkResult addAllFromArray(InputStream body) throws IOException {
+        log.debug("FilmController: Получен запрос на пакетное добавление фильмов из JSON-массива.");
+        List<Film> films = new ArrayList<>();
+        Map<Integer, String> errors = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw notFilmArray();
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                RequestParameterValidator.validateBulkSize(films.size() + 1);
+                // Элемент сначала читается как дерево, поэтому фильм с полями неверного типа отклоняется отдельно от остальных
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    films.add(objectMapper.treeToValue(node, Film.class));
+                } catch (JsonProcessingException e) {
+                    errors.put(films.size(), "FilmController: Некорректный JSON фильма.");
+                    films.add(null);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw notFilmArray();
+        }
+        return addAll(films, errors);
+    }
+
+    // Добавить фильмы из потока NDJSON (один фильм на строку), строка с некорректным JSON отклоняется отдельно от остальных
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public BulkResult addAll(InputStream body) throws IOException {
+        log.debug("FilmController: Получен запрос на пакетное добавление фильмов в формате NDJSON.");
+        List<Film> films = new ArrayList<>();
+        Map<Integer, String> errors = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            RequestParameterValidator.validateBulkSize(films.size() + 1);
+            try {
+                films.add(objectMapper.readValue(line, Film.class));
+            } catch (JsonProcessingException e) {
+                errors.put(films.size(), "FilmController: Некорректный JSON фильма.");
+                films.add(null);
+            }
+        }
+        return addAll(films, errors);
+    }
+
     // Обновить фильм
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         log.debug("FilmController: Получен запрос на обновление фильма {} с ID - {}.", film.getName(), film.getId());
         filmValidator.validateFilmReleaseDate(film);
+        filmValidator.validateFilmMpaAndGenres(film);
         return filmService.update(film);
     }
 
@@ -56,10 +201,51 @@ public class FilmController {
         return filmService.get(id);
     }
 
+    // Получить фильм по id только с полями из параметра fields
+    @GetMapping(value = "/{id}", params = "fields")
+    public Map<String, Object> get(@PathVariable Integer id, @RequestParam String fields) {
+        log.debug("FilmController: Получен запрос на получение фильма с ID - {} с полями {}.", id, fields);
+        FilmProjection projection = FilmProjection.parse(fields);
+        return projection.apply(filmService.get(id, projection));
+    }
+
     // Удалить фильм по id
     @DeleteMapping("/{id}")
     public Film delete(@PathVariable Integer id) {
         log.debug("FilmController: Получен запрос на удаление фильма с ID - {}.", id);
         return filmService.delete(id);
     }
+
+    private BulkResult addAll(List<Film> films, Map<Integer, String> errors) {
+        RequestParameterValidator.validateBulkSize(films.size());
+        errors.putAll(filmValidator.validateAll(films));
+        for (int i = 0; i < films.size(); i++) {
+            // null в JSON-массиве или строка null в NDJSON (строка с некорректным JSON уже содержит ошибку)
+            if (films.get(i) == null) {
+                errors.putIfAbsent(i, "FilmController: Фильм не может быть пустым.");
+            }
+        }
+        return filmService.addAll(films, errors);
+    }
+
+    private static IncorrectParameterException notFilmArray() {
+        String message = "FilmController: Тело запроса должно быть JSON-массивом фильмов.";
+        log.warn(message);
+        return new IncorrectParameterException(message);
+    }
+
+    private static List<Map<String, Object>> apply(FilmProjection projection, List<Film> films) {
+        return films.stream()
+                .map(projection::apply)
+                .collect(Collectors.toList());
+    }
+
+    private void writeLine(JsonGenerator generator, Film film) {
+        try {
+            objectMapper.writeValue(generator, film);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
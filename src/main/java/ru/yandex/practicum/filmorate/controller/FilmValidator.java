@@ -1,11 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.FilmValidationException;
+import ru.yandex.practicum.filmorate.exceptions.GenreDoesNotExistException;
+import ru.yandex.practicum.filmorate.exceptions.MpaDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 @Component
 @Slf4j
@@ -13,6 +20,17 @@ public class FilmValidator {
 
     private static final LocalDate EARLIEST_FILM = LocalDate.of(1895, 12, 28);
 
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final BulkValidator bulkValidator;
+
+    @Autowired
+    public FilmValidator(MpaService mpaService, GenreService genreService, BulkValidator bulkValidator) {
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.bulkValidator = bulkValidator;
+    }
+
     public void validateFilmReleaseDate(Film film) {
         log.debug("FilmController: Поступил запрос на валидацию даты релиза фильма {}.", film.getName());
         if (film.getReleaseDate().isBefore(EARLIEST_FILM)) {
@@ -20,4 +38,27 @@ public class FilmValidator {
             throw new FilmValidationException("Дата релиза фильма должна быть — не раньше 28 декабря 1895 года.");
         }
     }
+
+    // Проверить список фильмов параллельно, возвращает ошибки по номеру фильма в списке (null - фильм не удалось прочитать, он пропускается)
+    public Map<Integer, String> validateAll(List<Film> films) {
+        log.debug("FilmController: Поступил запрос на валидацию списка фильмов размером {}.", films.size());
+        return bulkValidator.validateAll(films, this::validate);
+    }
+
+    private String validate(Film film) {
+        try {
+            validateFilmReleaseDate(film);
+            validateFilmMpaAndGenres(film);
+            return null;
+        } catch (FilmValidationException | MpaDoesNotExistException | GenreDoesNotExistException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Рейтинг и жанры проверяются по справочникам в памяти, без запросов к БД
+    public void validateFilmMpaAndGenres(Film film) {
+        log.debug("FilmController: Поступил запрос на проверку рейтинга и жанров фильма {}.", film.getName());
+        mpaService.validateDataExists(film.getMpa().getId());
+        film.getGenres().forEach(genre -> genreService.validateDataExists(genre.getId()));
+    }
 }
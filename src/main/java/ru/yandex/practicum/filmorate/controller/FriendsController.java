@@ -3,9 +3,14 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exceptions.IncorrectPathVariableException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
 import ru.yandex.practicum.filmorate.service.FriendsService;
 import java.util.List;
 
@@ -30,6 +35,15 @@ public class FriendsController {
         return friendsService.addFriend(id, friendId);
     }
 
+    // Асинхронное добавление в друзья: запрос принимается в очередь, ответ 202 без тела
+    @PutMapping(value = "/{friendId}", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void addFriendAsync(@PathVariable Integer id, @PathVariable Integer friendId) {
+        log.debug("FriendsController: Получен асинхронный запрос от пользователя c ID {} на добавление в друзья пользователя с ID {}.", id, friendId);
+        validateUserAndFriendIdInequality(id, friendId);
+        friendsService.addFriendAsync(id, friendId);
+    }
+
     // Удаление из друзей
     @DeleteMapping("/{friendId}")
     public List<User> deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
@@ -37,6 +51,14 @@ public class FriendsController {
         return friendsService.deleteFriend(id, friendId);
     }
 
+    // Асинхронное удаление из друзей
+    @DeleteMapping(value = "/{friendId}", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void deleteFriendAsync(@PathVariable Integer id, @PathVariable Integer friendId) {
+        log.debug("FriendsController: Получен асинхронный запрос от пользователя c ID {} на удаление из друзей пользователя с ID {}.", id, friendId);
+        friendsService.deleteFriendAsync(id, friendId);
+    }
+
     // Получение списка всех друзей пользователя
     @GetMapping
     public List<User> getAllFriends(@PathVariable Integer id) {
@@ -44,6 +66,13 @@ public class FriendsController {
         return friendsService.getAllFriends(id);
     }
 
+    // Получение карточек друзей пользователя: вместо ID друзей каждого друга только их количество
+    @GetMapping(params = "shallow=true")
+    public List<UserCard> getAllFriendCards(@PathVariable Integer id) {
+        log.debug("FriendsController: Получен запрос на получение карточек друзей пользователя c ID {}.", id);
+        return friendsService.getAllFriendCards(id);
+    }
+
     // Получение списка друзей, общих с другим пользователем
     @GetMapping("/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
@@ -51,6 +80,45 @@ public class FriendsController {
         return friendsService.getCommonFriends(id, otherId);
     }
 
+    // Получение карточек общих друзей с другим пользователем
+    @GetMapping(value = "/common/{otherId}", params = "shallow=true")
+    public List<UserCard> getCommonFriendCards(@PathVariable Integer id, @PathVariable Integer otherId) {
+        log.debug("FriendsController: Получен запрос на получение карточек общих друзей пользователей c ID {} и {}.", id, otherId);
+        return friendsService.getCommonFriendCards(id, otherId);
+    }
+
+    // Получение количества общих друзей с другим пользователем без списка пользователей
+    @GetMapping(value = "/common/{otherId}", params = "countOnly=true")
+    public MutualFriendsCount countCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
+        log.debug("FriendsController: Получен запрос на подсчет общих друзей пользователей c ID {} и {}.", id, otherId);
+        return friendsService.countCommonFriends(id, otherId);
+    }
+
+    // Параметры shallow и countOnly задают разные виды ответа и не могут использоваться вместе
+    @GetMapping(value = "/common/{otherId}", params = {"shallow=true", "countOnly=true"})
+    public void rejectShallowCount(@PathVariable Integer id, @PathVariable Integer otherId) {
+        String message = "FriendsController: Параметры shallow и countOnly нельзя использовать вместе.";
+        log.warn(message);
+        throw new IncorrectParameterException(message);
+    }
+
+    // Получение количества общих друзей с каждым пользователем из списка (ids=2,3,4) за один запрос
+    @GetMapping(value = "/common", params = "ids")
+    public List<MutualFriendsCount> countCommonFriends(@PathVariable Integer id, @RequestParam List<Integer> ids) {
+        log.debug("FriendsController: Получен запрос на подсчет общих друзей пользователя c ID {} с пользователями {}.", id, ids);
+        RequestParameterValidator.validateIdsParameter(ids, RequestParameterValidator.MAX_MUTUAL_COUNTS);
+        return friendsService.countCommonFriends(id, ids);
+    }
+
+    // Получение рекомендаций друзей: друзья друзей по убыванию количества общих друзей
+    @GetMapping("/suggestions")
+    public List<FriendSuggestion> getSuggestions(@PathVariable Integer id,
+                                                 @RequestParam(defaultValue = "10", required = false) Integer limit) {
+        log.debug("FriendsController: Получен запрос на получение {} рекомендаций друзей пользователя c ID {}.", limit, id);
+        RequestParameterValidator.validateLimitParameter(limit, FriendsService.MAX_SUGGESTIONS);
+        return friendsService.getSuggestions(id, limit);
+    }
+
     private static void validateUserAndFriendIdInequality(Integer id, Integer friendId) {
         log.debug("FriendsController: Поступил запрос на проверку на неравенства ID пользователя ({}) и потенциального друга ({}).", id, friendId);
         if (id.equals(friendId)) {
@@ -3,12 +3,17 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeResult;
 import ru.yandex.practicum.filmorate.service.LikesService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @Slf4j
@@ -30,6 +35,21 @@ public class LikesController {
         return likesService.likeFilm(id, userId);
     }
 
+    // Поставить лайк фильму и получить краткий ответ {filmId, likesCount, liked}
+    @PutMapping(value = "/{id}/like/{userId}", params = "compact=true")
+    public LikeResult like(@PathVariable Integer id, @PathVariable Integer userId) {
+        log.debug("LikesController: Получен запрос от пользователя с ID {} на лайк фильма с ID {} с кратким ответом.", userId, id);
+        return likesService.like(id, userId);
+    }
+
+    // Поставить лайк фильму асинхронно: запрос принимается в очередь, ответ 202 без тела
+    @PutMapping(value = "/{id}/like/{userId}", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void likeAsync(@PathVariable Integer id, @PathVariable Integer userId) {
+        log.debug("LikesController: Получен асинхронный запрос от пользователя с ID {} на лайк фильма с ID {}.", userId, id);
+        likesService.likeAsync(id, userId);
+    }
+
     // Удалить лайк фильма
     @DeleteMapping("/{id}/like/{userId}")
     public Film dislikeFilm(@PathVariable Integer id, @PathVariable Integer userId) {
@@ -37,6 +57,21 @@ public class LikesController {
         return likesService.dislikeFilm(id, userId);
     }
 
+    // Удалить лайк фильма и получить краткий ответ {filmId, likesCount, liked}
+    @DeleteMapping(value = "/{id}/like/{userId}", params = "compact=true")
+    public LikeResult dislike(@PathVariable Integer id, @PathVariable Integer userId) {
+        log.debug("LikesController: Получен запрос от пользователя с ID {} на удаление лайка фильма с ID {} с кратким ответом.", userId, id);
+        return likesService.dislike(id, userId);
+    }
+
+    // Удалить лайк фильма асинхронно
+    @DeleteMapping(value = "/{id}/like/{userId}", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void dislikeAsync(@PathVariable Integer id, @PathVariable Integer userId) {
+        log.debug("LikesController: Получен асинхронный запрос от пользователя с ID {} на удаление лайка фильма с ID {}.", userId, id);
+        likesService.dislikeAsync(id, userId);
+    }
+
     // Получить count фильмов по кол-ву лайков
     @GetMapping("/popular")
     public List<Film> getMostPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count) {
@@ -46,6 +81,19 @@ public class LikesController {
         return likesService.getMostPopularFilms(count);
     }
 
+    // Получить count фильмов по кол-ву лайков только с полями из параметра fields
+    @GetMapping(value = "/popular", params = "fields")
+    public List<Map<String, Object>> getMostPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count,
+                                                         @RequestParam String fields) {
+        log.debug("LikesController: Получен запрос на получение списка {} самых популярных фильмов с полями {}.", count, fields);
+        validateCountParameter(count);
+        FilmProjection projection = FilmProjection.parse(fields);
+
+        return likesService.getMostPopularFilms(count, projection).stream()
+                .map(projection::apply)
+                .collect(Collectors.toList());
+    }
+
     private static void validateCountParameter(Integer count) {
         log.trace("LikesController: Поступил запрос на проверку валидности параметра запроса count.");
         if (count <= 0) {
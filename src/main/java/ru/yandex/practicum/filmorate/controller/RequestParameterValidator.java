@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+
+import java.util.List;
+
+// Общие проверки параметров запросов: ограничения размеров задаются в одном месте для всех контроллеров
+@Slf4j
+final class RequestParameterValidator {
+
+    // Максимальный размер страницы и списка ids
+    static final int MAX_PAGE_SIZE = 1000;
+
+    // Максимальное количество записей в одном пакетном запросе
+    static final int MAX_BULK_SIZE = 100_000;
+
+    // Максимальное количество пользователей, для которых за один запрос считаются общие друзья
+    static final int MAX_MUTUAL_COUNTS = 1000;
+
+    private RequestParameterValidator() {
+    }
+
+    static void validateBulkSize(int size) {
+        if (size > MAX_BULK_SIZE) {
+            String message = String.format("RequestParameterValidator: За один запрос можно добавить не более %s записей.", MAX_BULK_SIZE);
+            log.warn(message);
+            throw new IncorrectParameterException(message);
+        }
+    }
+
+    static void validateIdsParameter(List<Integer> ids) {
+        validateIdsParameter(ids, MAX_PAGE_SIZE);
+    }
+
+    static void validateIdsParameter(List<Integer> ids, int maxSize) {
+        log.trace("RequestParameterValidator: Поступил запрос на проверку валидности параметра запроса ids.");
+        if (ids.isEmpty() || ids.size() > maxSize) {
+            String message = String.format("RequestParameterValidator: Параметр ids должен содержать от 1 до %s ID.", maxSize);
+            log.warn(message);
+            throw new IncorrectParameterException(message);
+        }
+        if (ids.contains(null)) {
+            String message = "RequestParameterValidator: Параметр ids не должен содержать пустых значений.";
+            log.warn(message);
+            throw new IncorrectParameterException(message);
+        }
+    }
+
+    static void validatePageParameters(Integer limit, Integer after) {
+        log.trace("RequestParameterValidator: Поступил запрос на проверку валидности параметров запроса limit и after.");
+        validateLimitParameter(limit, MAX_PAGE_SIZE);
+        if (after < 0) {
+            String message = "RequestParameterValidator: Параметр after не может быть отрицательным.";
+            log.warn(message);
+            throw new IncorrectParameterException(message);
+        }
+    }
+
+    static void validateLimitParameter(Integer limit, int max) {
+        log.trace("RequestParameterValidator: Поступил запрос на проверку валидности параметра запроса limit.");
+        if (limit <= 0 || limit > max) {
+            String message = String.format("RequestParameterValidator: Параметр limit должен быть в диапазоне от 1 до %s.", max);
+            log.warn(message);
+            throw new IncorrectParameterException(message);
+        }
+    }
+}
@@ -4,7 +4,12 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
+import ru.yandex.practicum.filmorate.model.UserImportResult;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
@@ -17,10 +22,12 @@ import java.util.*;
 public class UserController {
 
     private final UserService userService;
+    private final BulkValidator bulkValidator;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, BulkValidator bulkValidator) {
         this.userService = userService;
+        this.bulkValidator = bulkValidator;
     }
 
     // Получить список всех пользователей
@@ -30,6 +37,29 @@ public class UserController {
         return userService.getAll();
     }
 
+    // Получить карточки всех пользователей: вместо ID друзей только их количество
+    @GetMapping(params = "shallow=true")
+    public List<UserCard> getAllCards() {
+        log.debug("UserController: Получен запрос на получение карточек всех пользователей.");
+        return userService.getAllCards();
+    }
+
+    // Получить пользователей по списку ID (ids=1,2,3)
+    @GetMapping(params = "ids")
+    public MultiGetResult<User> getByIds(@RequestParam List<Integer> ids) {
+        log.debug("UserController: Получен запрос на получение пользователей по списку ID {}.", ids);
+        RequestParameterValidator.validateIdsParameter(ids);
+        return userService.getByIds(ids);
+    }
+
+    // Получить страницу пользователей с ID больше after
+    @GetMapping(params = {"limit", "!ids"})
+    public Page<User> getPage(@RequestParam Integer limit, @RequestParam(defaultValue = "0") Integer after) {
+        log.debug("UserController: Получен запрос на получение страницы пользователей с ID больше {} размером {}.", after, limit);
+        RequestParameterValidator.validatePageParameters(limit, after);
+        return userService.getPage(after, limit);
+    }
+
     // Добавить пользователя
     @PostMapping
     public User add(@Valid @RequestBody User user) {
@@ -37,6 +67,27 @@ public class UserController {
         return userService.add(user);
     }
 
+    // Импортировать пользователей и дружбу между ними (id пользователей и записи о дружбе задаются в ID клиента)
+    @PostMapping("/bulk")
+    public UserImportResult importUsers(@Valid @RequestBody UserImportRequest request) {
+        log.debug("UserController: Получен запрос на импорт пользователей в количестве {}.", request.getUsers().size());
+        RequestParameterValidator.validateBulkSize(request.getUsers().size());
+        RequestParameterValidator.validateBulkSize(request.getFriendships().size());
+
+        List<User> users = request.getUsers();
+        Map<Integer, String> errors = new HashMap<>(bulkValidator.validateAll(users, user -> null));
+        Set<Integer> clientIds = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                errors.put(i, "UserController: Пользователь не может быть пустым.");
+            } else if (user.getId() != null && !clientIds.add(user.getId())) {
+                errors.putIfAbsent(i, "UserController: ID пользователя в запросе повторяется.");
+            }
+        }
+        return userService.importUsers(request, errors);
+    }
+
     // Обновить пользователя
     @PutMapping
     public User update(@Valid @RequestBody User user) {
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Результат обработки одного элемента пакетного запроса: заполняется либо id, либо error
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    // Порядковый номер элемента в запросе
+    private int index;
+
+    private Integer id;
+
+    private String error;
+}
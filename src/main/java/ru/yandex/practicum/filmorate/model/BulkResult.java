@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkResult {
+
+    private int created;
+
+    private int failed;
+
+    // Результаты в порядке элементов запроса
+    private List<BulkItemResult> items;
+}
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -39,6 +41,11 @@ public class Film extends StorageData {
 
     private final Set<Integer> likes = new HashSet<>();
 
+    // Заполняется, только если клиент запросил количество лайков без самих лайков
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer likesCount;
+
     private final Set<Genre> genres = new TreeSet<>(Comparator.comparingInt(Genre::getId));
 
     public Film(Integer id, String name, String description, LocalDate releaseDate, long duration, int rate, MPA mpa) {
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Лайк пользователя userId фильму filmId
+@Data
+@AllArgsConstructor
+public class FilmLike {
+
+    private int filmId;
+
+    private int userId;
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Набор полей фильма, запрошенных клиентом в параметре fields (например, fields=id,name,likesCount)
+public class FilmProjection {
+
+    public static final FilmProjection FULL = new FilmProjection(null);
+
+    private static final List<String> FIELDS = List.of("id", "name", "description", "releaseDate", "duration", "rate", "mpa",
+            "likes", "genres", "likesCount");
+
+    // null - все поля фильма, кроме likesCount
+    private final Set<String> fields;
+
+    private FilmProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FilmProjection parse(String fields) {
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        if (requested.isEmpty()) {
+            throw new IncorrectParameterException("FilmProjection: Параметр fields не может быть пустым.");
+        }
+        for (String field : requested) {
+            if (!FIELDS.contains(field)) {
+                throw new IncorrectParameterException(String.format("FilmProjection: Неизвестное поле фильма %s. Допустимые поля: %s.",
+                        field, String.join(", ", FIELDS)));
+            }
+        }
+        return new FilmProjection(requested);
+    }
+
+    public boolean isFull() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null ? !"likesCount".equals(field) : fields.contains(field);
+    }
+
+    public boolean includesLikes() {
+        return includes("likes");
+    }
+
+    public boolean includesGenres() {
+        return includes("genres");
+    }
+
+    // Количество лайков загружается отдельным запросом, только если не загружены сами лайки
+    public boolean includesLikesCountOnly() {
+        return includes("likesCount") && !includesLikes();
+    }
+
+    // Оставить у фильма только запрошенные поля (в порядке FIELDS)
+    public Map<String, Object> apply(Film film) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String field : FIELDS) {
+            if (includes(field)) {
+                result.put(field, getValue(film, field));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return fields == null ? "FULL" : String.join(",", fields);
+    }
+
+    private static Object getValue(Film film, String field) {
+        switch (field) {
+            case "id":
+                return film.getId();
+            case "name":
+                return film.getName();
+            case "description":
+                return film.getDescription();
+            case "releaseDate":
+                return film.getReleaseDate().toString();
+            case "duration":
+                return film.getDuration();
+            case "rate":
+                return film.getRate();
+            case "mpa":
+                return film.getMpa();
+            case "likes":
+                return film.getLikes();
+            case "genres":
+                return film.getGenres();
+            case "likesCount":
+                return film.getLikesCount() != null ? film.getLikesCount() : film.getLikes().size();
+            default:
+                throw new IllegalArgumentException(field);
+        }
+    }
+}
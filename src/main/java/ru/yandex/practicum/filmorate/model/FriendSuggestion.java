@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Рекомендованный пользователь (друг друга) и количество общих друзей с ним
+@Data
+@AllArgsConstructor
+public class FriendSuggestion {
+
+    private User user;
+
+    private int mutualFriends;
+}
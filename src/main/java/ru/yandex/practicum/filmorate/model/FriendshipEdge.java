@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+// Запись о дружбе: пользователь userId добавил в друзья пользователя friendId
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipEdge {
+
+    @NotNull
+    private Integer userId;
+
+    @NotNull
+    private Integer friendId;
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IngestionStats {
+
+    // Количество изменений в очереди
+    private int queueDepth;
+
+    private int capacity;
+
+    private long accepted;
+
+    // Отклонено из-за заполненной очереди (ответ 429)
+    private long rejected;
+
+    private long applied;
+
+    private long failed;
+
+    // Время ожидания самого старого изменения в очереди
+    private long lagMillis;
+}
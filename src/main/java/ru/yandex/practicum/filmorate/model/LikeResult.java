@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Краткий ответ на лайк или удаление лайка
+@Data
+@AllArgsConstructor
+public class LikeResult {
+
+    private int filmId;
+
+    private int likesCount;
+
+    // Есть ли лайк пользователя у фильма после выполнения запроса
+    private boolean liked;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MultiGetResult<T> {
+
+    // Найденные данные в порядке запрошенных ID
+    private List<T> items;
+
+    // Запрошенные ID, данных с которыми не существует
+    private List<Integer> missingIds;
+}
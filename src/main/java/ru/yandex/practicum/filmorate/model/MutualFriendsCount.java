@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Количество общих друзей пользователей userId и otherId
+@Data
+@AllArgsConstructor
+public class MutualFriendsCount {
+
+    private int userId;
+
+    private int otherId;
+
+    private int count;
+}
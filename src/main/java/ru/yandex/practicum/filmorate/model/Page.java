@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class Page<T> {
+
+    private List<T> items;
+
+    // ID последнего элемента страницы, передается в параметре after для получения следующей страницы (null - страница последняя)
+    private Integer nextCursor;
+}
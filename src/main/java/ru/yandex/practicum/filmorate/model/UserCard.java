@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Краткая карточка пользователя для списков: вместо ID друзей только их количество
+@Data
+@AllArgsConstructor
+public class UserCard {
+
+    private int id;
+
+    private String email;
+
+    private String login;
+
+    private String name;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate birthday;
+
+    private int friendsCount;
+
+    public static UserCard of(User user, int friendsCount) {
+        return new UserCard(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), friendsCount);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+
+// Пакетный импорт пользователей: id пользователя задается клиентом, дружба указывается в ID клиента
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRequest {
+
+    @NotNull
+    private List<User> users = new ArrayList<>();
+
+    private List<FriendshipEdge> friendships = new ArrayList<>();
+
+    // Дружба необязательна: явный null равнозначен пустому списку
+    public void setFriendships(List<FriendshipEdge> friendships) {
+        this.friendships = friendships == null ? new ArrayList<>() : friendships;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class UserImportResult {
+
+    private BulkResult users;
+
+    // Соответствие ID клиента и ID добавленного пользователя
+    private Map<Integer, Integer> ids;
+
+    private BulkResult friendships;
+}
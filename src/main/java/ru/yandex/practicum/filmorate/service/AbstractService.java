@@ -1,14 +1,29 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import ru.yandex.practicum.filmorate.model.BulkItemResult;
+import ru.yandex.practicum.filmorate.model.BulkResult;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.StorageData;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 public abstract class AbstractService<T extends StorageData> {
 
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     Storage<T> storage;
 
     // Получить список всех данных
@@ -17,32 +32,120 @@ public abstract class AbstractService<T extends StorageData> {
         return storage.getAll();
     }
 
+    // Получить страницу данных с ID больше after (keyset-пагинация)
+    public Page<T> getPage(int after, int limit) {
+        return getPage(after, limit, storage::getPage);
+    }
+
+    // Страница загружается loader (after, limit), чтобы наследники могли передать свой способ чтения
+    protected Page<T> getPage(int after, int limit, BiFunction<Integer, Integer, List<T>> loader) {
+        log.debug("AbstractService: Получен запрос к сервису на получение страницы данных с ID больше {} размером {}.", after, limit);
+        List<T> items = loader.apply(after, limit + 1);
+        if (items.size() <= limit) {
+            return new Page<>(items, null);
+        }
+
+        List<T> page = items.subList(0, limit);
+        return new Page<>(List.copyOf(page), page.get(limit - 1).getId());
+    }
+
+    // Получить данные по списку ID: повторяющиеся ID отбрасываются, отсутствующие возвращаются в missingIds
+    public MultiGetResult<T> getByIds(List<Integer> ids) {
+        return getByIds(ids, storage::getByIds);
+    }
+
+    protected MultiGetResult<T> getByIds(List<Integer> ids, Function<List<Integer>, List<T>> loader) {
+        log.debug("AbstractService: Получен запрос к сервису на получение данных по списку ID размером {}.", ids.size());
+        List<Integer> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        List<T> items = loader.apply(distinctIds);
+
+        Set<Integer> foundIds = items.stream()
+                .map(StorageData::getId)
+                .collect(Collectors.toSet());
+        List<Integer> missingIds = distinctIds.stream()
+                .filter(id -> !foundIds.contains(id))
+                .collect(Collectors.toList());
+        return new MultiGetResult<>(items, missingIds);
+    }
+
     // Добавить данные
     public T add(T data) {
        log.debug("AbstractService: Получен запрос к сервису на добавление {}.", data.getClass().getSimpleName());
        return storage.add(data);
     }
 
+    // Добавить данные частями по BULK_CHUNK_SIZE, каждая часть - отдельная транзакция.
+    // errors содержит ошибки валидации по номеру элемента, такие элементы не добавляются.
+    // Если часть не удалось добавить целиком, ее элементы добавляются по одному, чтобы ошибка затронула только свой элемент
+    public BulkResult addAll(List<T> data, Map<Integer, String> errors) {
+        log.debug("AbstractService: Получен запрос к сервису на пакетное добавление данных в количестве {}.", data.size());
+        Map<Integer, Integer> ids = new HashMap<>();
+        Map<Integer, String> allErrors = new HashMap<>(errors);
+        List<Integer> validIndexes = IntStream.range(0, data.size())
+                .filter(i -> !errors.containsKey(i))
+                .boxed()
+                .collect(Collectors.toList());
+
+        for (int from = 0; from < validIndexes.size(); from += BULK_CHUNK_SIZE) {
+            List<Integer> chunk = validIndexes.subList(from, Math.min(from + BULK_CHUNK_SIZE, validIndexes.size()));
+            List<T> chunkData = chunk.stream()
+                    .map(data::get)
+                    .collect(Collectors.toList());
+            try {
+                putIds(ids, chunk, storage.addAll(chunkData));
+            } catch (DataAccessException e) {
+                log.warn("AbstractService: Не удалось добавить часть данных целиком, данные добавляются по одному: {}", e.getMessage());
+                for (Integer index : chunk) {
+                    try {
+                        putIds(ids, List.of(index), storage.addAll(List.of(data.get(index))));
+                    } catch (DataAccessException itemException) {
+                        allErrors.put(index, "AbstractService: Не удалось сохранить данные.");
+                    }
+                }
+            }
+        }
+
+        List<BulkItemResult> items = IntStream.range(0, data.size())
+                .mapToObj(i -> new BulkItemResult(i, ids.get(i), allErrors.get(i)))
+                .collect(Collectors.toList());
+        log.debug("AbstractService: Пакетно добавлено данных - {}, с ошибками - {}.", ids.size(), allErrors.size());
+        return new BulkResult(ids.size(), allErrors.size(), items);
+    }
+
     // Обновить данные
     public T update(T data) {
         log.debug("AbstractService: Получен запрос к сервису на обновление {}.", data.getClass().getSimpleName());
-        validateDataExists(data.getId());
-        return storage.update(data);
+        return requireExists(storage.update(data));
     }
 
     // Получить данные по ID
     public T get(int id) {
         log.debug("AbstractService: Получен запрос к сервису на получение данных с ID - {}.", id);
-        validateDataExists(id);
-        return storage.get(id);
+        return requireExists(storage.get(id));
     }
 
     public T delete(int id) {
         log.debug("AbstractService: Получен запрос к сервису на удаление данных с ID - {}.", id);
-        validateDataExists(id);
-        return storage.delete(id);
+        return requireExists(storage.delete(id));
     }
 
     public abstract void validateDataExists(Integer id);
 
+    // Исключение для отсутствующих данных. Отдельный запрос на проверку наличия не делается:
+    // о том, что данных нет, говорит пустой результат основного запроса
+    protected abstract RuntimeException dataDoesNotExist();
+
+    protected T requireExists(T data) {
+        if (data == null) {
+            throw dataDoesNotExist();
+        }
+        return data;
+    }
+
+    private static void putIds(Map<Integer, Integer> ids, List<Integer> indexes, List<Integer> addedIds) {
+        for (int i = 0; i < indexes.size(); i++) {
+            ids.put(indexes.get(i), addedIds.get(i));
+        }
+    }
+
 }
@@ -5,25 +5,79 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.FilmDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.CacheStats;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FilmService extends AbstractService<Film> {
 
+    private final FilmStorage filmStorage;
+    private final FilmCache filmCache;
+
     @Autowired
-    public FilmService(@Qualifier("FilmDbStorage") Storage<Film> storage) {
+    public FilmService(@Qualifier("FilmDbStorage") FilmStorage storage, FilmCache filmCache) {
         this.storage = storage;
+        this.filmStorage = storage;
+        this.filmCache = filmCache;
+    }
+
+    // Получить статистику кэша фильмов
+    public CacheStats getCacheStats() {
+        log.debug("FilmService: Получен запрос к сервису на получение статистики кэша фильмов.");
+        return filmCache.getStats();
+    }
+
+    // Получить все фильмы только с запрошенными полями
+    public List<Film> getAll(FilmProjection projection) {
+        log.debug("FilmService: Получен запрос к сервису на получение всех фильмов с полями {}.", projection);
+        return filmStorage.getAll(projection);
+    }
+
+    // Получить страницу фильмов только с запрошенными полями
+    public Page<Film> getPage(int after, int limit, FilmProjection projection) {
+        log.debug("FilmService: Получен запрос к сервису на получение страницы фильмов с полями {}.", projection);
+        return getPage(after, limit, (pageAfter, pageLimit) -> filmStorage.getPage(pageAfter, pageLimit, projection));
+    }
+
+    // Получить фильмы по списку ID только с запрошенными полями
+    public MultiGetResult<Film> getByIds(List<Integer> ids, FilmProjection projection) {
+        log.debug("FilmService: Получен запрос к сервису на получение фильмов по списку ID с полями {}.", projection);
+        return getByIds(ids, distinctIds -> filmStorage.getByIds(distinctIds, projection));
+    }
+
+    // Получить фильм по ID только с запрошенными полями
+    public Film get(int id, FilmProjection projection) {
+        log.debug("FilmService: Получен запрос к сервису на получение фильма с ID - {} с полями {}.", id, projection);
+        return requireExists(filmStorage.get(id, projection));
+    }
+
+    // Выгрузить все фильмы по одному
+    public void exportAll(Consumer<Film> consumer) {
+        log.debug("FilmService: Получен запрос к сервису на выгрузку всех фильмов.");
+        filmStorage.exportAll(consumer);
     }
 
     @Override
     public void validateDataExists(Integer id) {
         log.debug("FilmService: Поступил запрос на проверку наличия фильма с ID {} в базе данных фильмов.", id);
         if (!storage.validateDataExists(id)) {
-            String message = "FilmService: Фильм c таким ID не существует.";
-            log.warn(message);
-            throw new FilmDoesNotExistException(message);
+            throw dataDoesNotExist();
         }
     }
+
+    @Override
+    protected FilmDoesNotExistException dataDoesNotExist() {
+        String message = "FilmService: Фильм c таким ID не существует.";
+        log.warn(message);
+        return new FilmDoesNotExistException(message);
+    }
 }
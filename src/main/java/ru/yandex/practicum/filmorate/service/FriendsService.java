@@ -3,33 +3,52 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
 import ru.yandex.practicum.filmorate.storage.FriendDbStorage;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class FriendsService {
 
+    // Максимальное количество рекомендаций друзей за один запрос (столько рекомендаций хранится в кэше)
+    public static final int MAX_SUGGESTIONS = FriendDbStorage.MAX_SUGGESTIONS;
+
     private final Storage<User> storage;
     private final FriendDbStorage friendStorage;
+    private final IngestionService ingestionService;
 
     @Autowired
-    public FriendsService(@Qualifier("UserDbStorage") Storage<User> storage, FriendDbStorage friendStorage) {
+    public FriendsService(@Qualifier("UserDbStorage") Storage<User> storage, FriendDbStorage friendStorage,
+                          IngestionService ingestionService) {
         this.storage = storage;
         this.friendStorage = friendStorage;
+        this.ingestionService = ingestionService;
     }
 
     // Добавление в друзья
     public List<User> addFriend(int userId, int friendId) {
         log.debug("FriendsService: Получен запрос к сервису от пользователя c ID {} на добавление в друзья пользователя с ID {}.", userId, friendId);
-        validateDataExists(userId);
-        validateDataExists(friendId);
-        List<User> result = friendStorage.addFriend(userId, friendId);
+        List<User> result;
+        try {
+            result = friendStorage.addFriend(userId, friendId);
+        } catch (DataIntegrityViolationException e) {
+            // Нарушен внешний ключ: выясняем, какого из пользователей нет
+            validateDataExists(userId);
+            validateDataExists(friendId);
+            throw e;
+        }
 
         log.debug("FriendsService: Пользователь с id {} стал другом пользователя с id {}.", userId, friendId);
         return result;
@@ -38,21 +57,54 @@ public class FriendsService {
     // Удаление из друзей
     public List<User> deleteFriend(int userId, int friendId) {
         log.debug("FriendsService: Получен запрос к сервису от пользователя c ID {} на удаление из друзей пользователя с ID {}.", userId, friendId);
-        validateDataExists(userId);
-        validateDataExists(friendId);
-
+        // Оба пользователя читаются для ответа, отсутствующий пользователь возвращается как null
         List<User> result = friendStorage.deleteFriend(userId, friendId);
+        if (result.contains(null)) {
+            throw userDoesNotExist();
+        }
 
         log.debug("FriendsService: Пользователь с id {} удалил из друзей пользователя с id {}.", userId, friendId);
         return result;
     }
 
+    // Асинхронное добавление в друзья: запись делает фоновый обработчик очереди
+    public void addFriendAsync(int userId, int friendId) {
+        log.debug("FriendsService: Получен запрос к сервису от пользователя c ID {} на асинхронное добавление в друзья пользователя с ID {}.", userId, friendId);
+        validateDataExists(userId);
+        validateDataExists(friendId);
+
+        ingestionService.addFriend(userId, friendId);
+    }
+
+    // Асинхронное удаление из друзей
+    public void deleteFriendAsync(int userId, int friendId) {
+        log.debug("FriendsService: Получен запрос к сервису от пользователя c ID {} на асинхронное удаление из друзей пользователя с ID {}.", userId, friendId);
+        validateDataExists(userId);
+        validateDataExists(friendId);
+
+        ingestionService.deleteFriend(userId, friendId);
+    }
+
     // Получение списка всех друзей пользователя
     public List<User> getAllFriends(int userId) {
         log.debug("FriendsService: Получен запрос к сервису на получение всех друзей пользователя c ID - {}.", userId);
-        validateDataExists(userId);
-
         List<User> result = friendStorage.getAllFriends(userId);
+        if (result.isEmpty()) {
+            // Пустой список: друзей нет, либо нет самого пользователя
+            validateDataExists(userId);
+        }
+
+        log.debug("FriendsService: Количество друзей у пользователя с id {} составляет {}.", userId, result.size());
+        return result;
+    }
+
+    // Получение карточек друзей пользователя без ID их друзей
+    public List<UserCard> getAllFriendCards(int userId) {
+        log.debug("FriendsService: Получен запрос к сервису на получение карточек друзей пользователя c ID - {}.", userId);
+        List<UserCard> result = friendStorage.getAllFriendCards(userId);
+        if (result.isEmpty()) {
+            validateDataExists(userId);
+        }
 
         log.debug("FriendsService: Количество друзей у пользователя с id {} составляет {}.", userId, result.size());
         return result;
@@ -61,21 +113,88 @@ public class FriendsService {
     // Получение списка друзей, общих с другим пользователем
     public List<User> getCommonFriends(int userId, int otherId) {
         log.debug("FriendsService: Получен запрос к сервису на получение общих друзей пользователей c ID {} и {}.", userId, otherId);
-        validateDataExists(userId);
-        validateDataExists(otherId);
-
         List<User> result = friendStorage.getCommonFriends(userId, otherId);
+        if (result.isEmpty()) {
+            validateDataExists(userId);
+            validateDataExists(otherId);
+        }
 
         log.debug("FriendsService: Получены общие друзья в количестве {} у пользователей с id {} и {}.", result.size(), userId, otherId);
         return result;
     }
 
+    // Получение карточек общих друзей без ID их друзей
+    public List<UserCard> getCommonFriendCards(int userId, int otherId) {
+        log.debug("FriendsService: Получен запрос к сервису на получение карточек общих друзей пользователей c ID {} и {}.", userId, otherId);
+        List<UserCard> result = friendStorage.getCommonFriendCards(userId, otherId);
+        if (result.isEmpty()) {
+            validateDataExists(userId);
+            validateDataExists(otherId);
+        }
+
+        log.debug("FriendsService: Получены карточки общих друзей в количестве {} у пользователей с id {} и {}.", result.size(), userId, otherId);
+        return result;
+    }
+
+    // Получение количества общих друзей без списка пользователей
+    public MutualFriendsCount countCommonFriends(int userId, int otherId) {
+        log.debug("FriendsService: Получен запрос к сервису на подсчет общих друзей пользователей c ID {} и {}.", userId, otherId);
+        int count = friendStorage.countCommonFriends(userId, otherId);
+        if (count == 0) {
+            validateDataExists(userId);
+            validateDataExists(otherId);
+        }
+
+        log.debug("FriendsService: Количество общих друзей у пользователей с id {} и {} составляет {}.", userId, otherId, count);
+        return new MutualFriendsCount(userId, otherId, count);
+    }
+
+    // Получение количества общих друзей пользователя с каждым из списка пользователей.
+    // Несуществующие пользователи из списка и повторы пропускаются, проверка наличия идет по индексу ID без запросов к БД
+    public List<MutualFriendsCount> countCommonFriends(int userId, List<Integer> otherIds) {
+        log.debug("FriendsService: Получен запрос к сервису на подсчет общих друзей пользователя c ID {} с пользователями {}.", userId, otherIds);
+        validateDataExists(userId);
+        List<Integer> existingIds = otherIds.stream()
+                .distinct()
+                .filter(storage::validateDataExists)
+                .collect(Collectors.toList());
+
+        List<MutualFriendsCount> result = friendStorage.countCommonFriends(userId, existingIds);
+        log.debug("FriendsService: Посчитаны общие друзья пользователя с id {} с пользователями в количестве {}.", userId, result.size());
+        return result;
+    }
+
+    // Получение рекомендаций друзей: друзья друзей по убыванию количества общих друзей
+    public List<FriendSuggestion> getSuggestions(int userId, int limit) {
+        log.debug("FriendsService: Получен запрос к сервису на получение {} рекомендаций друзей пользователя c ID {}.", limit, userId);
+        List<MutualFriendsCount> suggestions = friendStorage.getSuggestions(userId, limit);
+        if (suggestions.isEmpty()) {
+            validateDataExists(userId);
+            return List.of();
+        }
+
+        Map<Integer, User> users = storage.getByIds(suggestions.stream()
+                        .map(MutualFriendsCount::getOtherId)
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<FriendSuggestion> result = suggestions.stream()
+                .filter(suggestion -> users.containsKey(suggestion.getOtherId()))
+                .map(suggestion -> new FriendSuggestion(users.get(suggestion.getOtherId()), suggestion.getCount()))
+                .collect(Collectors.toList());
+        log.debug("FriendsService: Получено рекомендаций друзей пользователя с id {} - {}.", userId, result.size());
+        return result;
+    }
+
     public void validateDataExists(Integer id) {
         log.debug("FriendsService: Поступил запрос на проверку наличия пользователя с ID {} в базе данных пользователей.", id);
         if (!storage.validateDataExists(id)) {
-            String message = "FriendsService: Пользователя c таким ID не существует.";
-            log.warn(message);
-            throw new UserDoesNotExistException(message);
+            throw userDoesNotExist();
         }
     }
+
+    private static UserDoesNotExistException userDoesNotExist() {
+        String message = "FriendsService: Пользователя c таким ID не существует.";
+        log.warn(message);
+        return new UserDoesNotExistException(message);
+    }
 }
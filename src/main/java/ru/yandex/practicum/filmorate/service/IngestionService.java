@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.IngestionQueueFullException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.model.IngestionStats;
+import ru.yandex.practicum.filmorate.storage.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.LikesDbStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Асинхронная запись лайков и дружбы: изменения принимаются в ограниченную очередь и записываются пакетами фоновыми обработчиками.
+// Очередь разделена на части по ID фильма (лайки) или пользователя (дружба), поэтому изменения одной записи применяются по порядку
+@Service
+@Slf4j
+public class IngestionService {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final LikesDbStorage likesStorage;
+    private final FriendDbStorage friendStorage;
+    private final int capacity;
+    private final int batchSize;
+    private final List<BlockingQueue<Mutation>> partitions = new ArrayList<>();
+    private final ExecutorService workers;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running = true;
+
+    @Autowired
+    public IngestionService(LikesDbStorage likesStorage, FriendDbStorage friendStorage,
+                            @Value("${filmorate.ingestion.queue-capacity:10000}") int capacity,
+                            @Value("${filmorate.ingestion.workers:2}") int workerCount,
+                            @Value("${filmorate.ingestion.batch-size:500}") int batchSize) {
+        this.likesStorage = likesStorage;
+        this.friendStorage = friendStorage;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        for (int i = 0; i < workerCount; i++) {
+            partitions.add(new ArrayBlockingQueue<>(Math.max(1, capacity / workerCount)));
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        partitions.forEach(partition -> workers.execute(() -> work(partition)));
+        log.info("IngestionService: Запущено обработчиков очереди изменений - {}.", partitions.size());
+    }
+
+    // Остановить обработчики и записать оставшиеся в очереди изменения
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("IngestionService: Обработчики очереди изменений не завершились за {} с.", SHUTDOWN_TIMEOUT_SECONDS);
+            workers.shutdownNow();
+        }
+        for (BlockingQueue<Mutation> partition : partitions) {
+            List<Mutation> rest = new ArrayList<>();
+            partition.drainTo(rest);
+            apply(rest);
+        }
+    }
+
+    public void likeFilm(int filmId, int userId) {
+        enqueue(new Mutation(MutationType.LIKE, filmId, userId));
+    }
+
+    public void dislikeFilm(int filmId, int userId) {
+        enqueue(new Mutation(MutationType.DISLIKE, filmId, userId));
+    }
+
+    public void addFriend(int userId, int friendId) {
+        enqueue(new Mutation(MutationType.ADD_FRIEND, userId, friendId));
+    }
+
+    public void deleteFriend(int userId, int friendId) {
+        enqueue(new Mutation(MutationType.DELETE_FRIEND, userId, friendId));
+    }
+
+    public IngestionStats getStats() {
+        int depth = 0;
+        long oldest = Long.MAX_VALUE;
+        for (BlockingQueue<Mutation> partition : partitions) {
+            depth += partition.size();
+            Mutation head = partition.peek();
+            if (head != null) {
+                oldest = Math.min(oldest, head.enqueuedAt);
+            }
+        }
+        long lagMillis = oldest == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+        return new IngestionStats(depth, capacity, accepted.get(), rejected.get(), applied.get(), failed.get(), lagMillis);
+    }
+
+    private void enqueue(Mutation mutation) {
+        BlockingQueue<Mutation> partition = partitions.get(Math.floorMod(mutation.id, partitions.size()));
+        if (!running || !partition.offer(mutation)) {
+            rejected.incrementAndGet();
+            String message = "IngestionService: Очередь изменений заполнена, повторите запрос позже.";
+            log.warn(message);
+            throw new IngestionQueueFullException(message);
+        }
+        accepted.incrementAndGet();
+    }
+
+    private void work(BlockingQueue<Mutation> partition) {
+        List<Mutation> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Mutation first = partition.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                partition.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("IngestionService: Ошибка обработчика очереди изменений.", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Подряд идущие изменения одного типа записываются одним пакетом, порядок изменений сохраняется
+    private void apply(List<Mutation> batch) {
+        int from = 0;
+        while (from < batch.size()) {
+            MutationType type = batch.get(from).type;
+            int to = from;
+            while (to < batch.size() && batch.get(to).type == type) {
+                to++;
+            }
+            List<Mutation> run = batch.subList(from, to);
+            try {
+                write(type, run);
+                applied.addAndGet(run.size());
+            } catch (DataAccessException e) {
+                log.warn("IngestionService: Не удалось записать пакет изменений, изменения записываются по одному: {}", e.getMessage());
+                for (Mutation mutation : run) {
+                    try {
+                        write(type, List.of(mutation));
+                        applied.incrementAndGet();
+                    } catch (DataAccessException itemException) {
+                        failed.incrementAndGet();
+                        log.warn("IngestionService: Изменение {} {} -> {} отклонено: {}", type, mutation.id, mutation.otherId,
+                                itemException.getMessage());
+                    }
+                }
+            }
+            from = to;
+        }
+    }
+
+    private void write(MutationType type, List<Mutation> run) {
+        switch (type) {
+            case LIKE:
+                likesStorage.likeFilms(map(run, mutation -> new FilmLike(mutation.id, mutation.otherId)));
+                break;
+            case DISLIKE:
+                likesStorage.dislikeFilms(map(run, mutation -> new FilmLike(mutation.id, mutation.otherId)));
+                break;
+            case ADD_FRIEND:
+                friendStorage.addFriends(map(run, mutation -> new FriendshipEdge(mutation.id, mutation.otherId)));
+                break;
+            case DELETE_FRIEND:
+                friendStorage.deleteFriends(map(run, mutation -> new FriendshipEdge(mutation.id, mutation.otherId)));
+                break;
+            default:
+                throw new IllegalStateException("IngestionService: Неизвестный тип изменения " + type);
+        }
+    }
+
+    private static <T> List<T> map(List<Mutation> run, Function<Mutation, T> mapper) {
+        return run.stream()
+                .map(mapper)
+                .collect(Collectors.toList());
+    }
+
+    private enum MutationType {
+        LIKE,
+        DISLIKE,
+        ADD_FRIEND,
+        DELETE_FRIEND
+    }
+
+    private static class Mutation {
+        private final MutationType type;
+        // ID фильма (лайки) или пользователя (дружба), по нему выбирается часть очереди
+        private final int id;
+        private final int otherId;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Mutation(MutationType type, int id, int otherId) {
+            this.type = type;
+            this.id = id;
+            this.otherId = otherId;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exceptions.IncorrectPathVariableException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeResult;
 import ru.yandex.practicum.filmorate.storage.LikesDbStorage;
 
 import java.util.List;
@@ -17,54 +19,103 @@ public class LikesService {
     private final UserService userService;
     private final FilmService filmService;
     private final LikesDbStorage likesStorage;
+    private final IngestionService ingestionService;
 
 
     @Autowired
-    public LikesService(UserService userService, FilmService filmService, @Qualifier("LikesStorage") LikesDbStorage likesStorage) {
+    public LikesService(UserService userService, FilmService filmService, @Qualifier("LikesStorage") LikesDbStorage likesStorage,
+                        IngestionService ingestionService) {
         this.userService = userService;
         this.filmService = filmService;
         this.likesStorage = likesStorage;
+        this.ingestionService = ingestionService;
     }
 
-    // Поставить лайк фильму
+    // Поставить лайк фильму (повторный лайк ничего не меняет)
     public Film likeFilm(int filmId, int userId) {
-        log.debug("LikesService: Получен запрос к сервису от пользователя с ID {} на лайк фильма с ID {}.", userId, filmId);
-        filmService.validateDataExists(filmId);
-        userService.validateDataExists(userId);
+        like(filmId, userId);
+        return getFilm(filmId);
+    }
 
-        Film film = likesStorage.likeFilm(filmId, userId);
+    // Поставить лайк фильму и получить краткий ответ
+    public LikeResult like(int filmId, int userId) {
+        log.debug("LikesService: Получен запрос к сервису от пользователя с ID {} на лайк фильма с ID {}.", userId, filmId);
+        LikeResult result;
+        try {
+            result = likesStorage.likeFilm(filmId, userId);
+        } catch (DataIntegrityViolationException e) {
+            // Нарушен внешний ключ: выясняем, какого из объектов нет
+            validateFilmAndUserExist(filmId, userId);
+            throw e;
+        }
         log.debug("LikesService: Пользователю с id {} понравился фильм с id {}.", userId, filmId);
-        return film;
+        return result;
     }
 
-    // Удалить лайк фильма
+    // Удалить лайк фильма (удаление отсутствующего лайка ничего не меняет)
     public Film dislikeFilm(int filmId, int userId) {
+        dislike(filmId, userId);
+        return getFilm(filmId);
+    }
+
+    // Удалить лайк фильма и получить краткий ответ
+    public LikeResult dislike(int filmId, int userId) {
         log.debug("LikesService: Получен запрос к сервису от пользователя с ID {} на удаление лайка фильма с ID {}.", userId, filmId);
+        LikeResult result = likesStorage.dislikeFilm(filmId, userId);
+        if (result == null) {
+            // Лайк не удален: его не было, либо нет фильма или пользователя
+            validateFilmAndUserExist(filmId, userId);
+            result = likesStorage.getLikeResult(filmId, false);
+        }
+        log.debug("LikesService: Пользователь с id {} удалил лайк у фильма с id {}.", userId, filmId);
+        return result;
+    }
+
+    // Поставить лайк фильму асинхронно: лайк записывается фоновым обработчиком очереди
+    public void likeAsync(int filmId, int userId) {
+        log.debug("LikesService: Получен запрос к сервису от пользователя с ID {} на асинхронный лайк фильма с ID {}.", userId, filmId);
         filmService.validateDataExists(filmId);
         userService.validateDataExists(userId);
 
-        Film film = filmService.get(filmId);
+        ingestionService.likeFilm(filmId, userId);
+    }
 
-        validateUserLikedFilm(filmId, userId, film);
+    // Удалить лайк фильма асинхронно
+    public void dislikeAsync(int filmId, int userId) {
+        log.debug("LikesService: Получен запрос к сервису от пользователя с ID {} на асинхронное удаление лайка фильма с ID {}.", userId, filmId);
+        filmService.validateDataExists(filmId);
+        userService.validateDataExists(userId);
 
-        Film updatedFilm = likesStorage.dislikeFilm(filmId, userId);
+        ingestionService.dislikeFilm(filmId, userId);
+    }
 
-        log.debug("LikesService: Пользователь с id {} удалил лайк у фильма с id {}.", userId, filmId);
-        return updatedFilm;
+    // Пересчитать rate всех фильмов по количеству лайков
+    public void recomputeRates() {
+        log.debug("LikesService: Получен запрос к сервису на пересчет rate всех фильмов по количеству лайков.");
+        likesStorage.recomputeRates();
+    }
+
+    private Film getFilm(int filmId) {
+        Film film = likesStorage.getFilm(filmId);
+        if (film == null) {
+            // Фильм удален другим запросом после записи лайка
+            filmService.validateDataExists(filmId);
+        }
+        return film;
+    }
+
+    private void validateFilmAndUserExist(int filmId, int userId) {
+        filmService.validateDataExists(filmId);
+        userService.validateDataExists(userId);
     }
 
     // Получить count фильмов по кол-ву лайков
     public List<Film> getMostPopularFilms(int count) {
-        log.debug("LikesService: Получен запрос к сервису на получение списка самых популярных фильмов размером {}.", count);
-        return likesStorage.getMostPopularFilms(count);
+        return getMostPopularFilms(count, FilmProjection.FULL);
     }
 
-    private static void validateUserLikedFilm(int filmId, int userId, Film film) {
-        log.debug("LikesService: Поступил запрос на проверку наличия лайка пользователя с ID {} у фильма с ID {}.", userId, filmId);
-        if (!film.getLikes().contains(userId)) {
-            String message = String.format("LikesService: Пользователь с id %s попытался удалить лайк у фильма с id %s, которому он не ставил лайк.", userId, filmId);
-            log.warn(message);
-            throw new IncorrectPathVariableException(message);
-        }
+    public List<Film> getMostPopularFilms(int count, FilmProjection projection) {
+        log.debug("LikesService: Получен запрос к сервису на получение списка самых популярных фильмов размером {}.", count);
+        return likesStorage.getMostPopularFilms(count, projection);
     }
 }
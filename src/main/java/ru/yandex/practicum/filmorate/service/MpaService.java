@@ -2,11 +2,10 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.MpaDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.MPA;
-import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.List;
 
@@ -14,27 +13,33 @@ import java.util.List;
 @Slf4j
 public class MpaService {
 
-    private final MpaDbStorage mpaStorage;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     @Autowired
-    public MpaService(@Qualifier("MpaStorage") MpaDbStorage mpaStorage) {
-        this.mpaStorage = mpaStorage;
+    public MpaService(ReferenceDataRegistry referenceDataRegistry) {
+        this.referenceDataRegistry = referenceDataRegistry;
     }
 
     public List<MPA> getAll() {
         log.debug("MpaService: Получен запрос к сервису на получение всех рейтингов.");
-        return mpaStorage.getAll();
+        return referenceDataRegistry.getAllMpa();
     }
 
     public MPA get(Integer id) {
         log.debug("MpaService: Получен запрос к сервису на получение рейтинга с ID - {}.", id);
         validateDataExists(id);
-        return mpaStorage.get(id);
+        return referenceDataRegistry.getMpa(id);
+    }
+
+    // Перечитать справочник рейтингов из БД
+    public void refresh() {
+        log.debug("MpaService: Получен запрос к сервису на обновление справочника рейтингов.");
+        referenceDataRegistry.refreshMpa();
     }
 
     public void validateDataExists(Integer id) {
-        log.debug("MpaService: Поступил запрос на проверку наличия рейтинга с ID {} в базе данных рейтингов.", id);
-        if (!mpaStorage.validateDataExists(id)) {
+        log.debug("MpaService: Поступил запрос на проверку наличия рейтинга с ID {} в справочнике рейтингов.", id);
+        if (!referenceDataRegistry.containsMpa(id)) {
             String message = "MpaService: Рейтинга c таким ID не существует.";
             log.warn(message);
             throw new MpaDoesNotExistException(message);
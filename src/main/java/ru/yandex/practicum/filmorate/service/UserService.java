@@ -3,18 +3,48 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.BulkItemResult;
+import ru.yandex.practicum.filmorate.model.BulkResult;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.model.UserCard;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
+import ru.yandex.practicum.filmorate.model.UserImportResult;
+import ru.yandex.practicum.filmorate.storage.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 public class UserService extends AbstractService<User> {
 
+    private static final int FRIENDS_CHUNK_SIZE = 1000;
+
+    private final UserStorage userStorage;
+    private final FriendDbStorage friendStorage;
+
     @Autowired
-    public UserService(@Qualifier("UserDbStorage") Storage<User> storage) {
+    public UserService(@Qualifier("UserDbStorage") UserStorage storage, FriendDbStorage friendStorage) {
         this.storage = storage;
+        this.userStorage = storage;
+        this.friendStorage = friendStorage;
+    }
+
+    // Получить карточки всех пользователей без ID их друзей
+    public List<UserCard> getAllCards() {
+        log.debug("UserService: Получен запрос к сервису на получение карточек всех пользователей.");
+        return userStorage.getAllCards();
     }
 
     // Добавить пользователя
@@ -25,25 +55,106 @@ public class UserService extends AbstractService<User> {
         return storage.add(user);
     }
 
+    // Импортировать пользователей и дружбу между ними. id пользователей в запросе - ID клиента, дружба задается в ID клиента.
+    // errors содержит ошибки валидации пользователей по номеру в списке
+    public UserImportResult importUsers(UserImportRequest request, Map<Integer, String> errors) {
+        List<User> users = request.getUsers();
+        log.debug("UserService: Получен запрос к сервису на импорт пользователей в количестве {} и записей о дружбе в количестве {}.",
+                users.size(), request.getFriendships().size());
+        users.forEach(user -> {
+            if (user != null) {
+                validateNullNameAndSetLoginAsName(user);
+            }
+        });
+        BulkResult usersResult = addAll(users, errors);
+
+        Map<Integer, Integer> ids = new HashMap<>();
+        for (BulkItemResult item : usersResult.getItems()) {
+            Integer clientId = users.get(item.getIndex()) == null ? null : users.get(item.getIndex()).getId();
+            if (item.getId() != null && clientId != null) {
+                ids.put(clientId, item.getId());
+            }
+        }
+
+        return new UserImportResult(usersResult, ids, importFriendships(request.getFriendships(), ids));
+    }
+
     // Обновить пользователя
     @Override
     public User update(User user) {
         log.debug("UserService: Получен запрос к сервису на обновление пользователя с ID - {}.", user.getId());
-        validateDataExists(user.getId());
         validateNullNameAndSetLoginAsName(user);
-        return storage.update(user);
+        return requireExists(storage.update(user));
     }
 
     @Override
     public void validateDataExists(Integer id) {
         log.debug("UserService: Поступил запрос на проверку наличия пользователя с ID {} в базе данных пользователей.", id);
         if (!storage.validateDataExists(id)) {
-            String message = "UserService: Пользователя c таким ID не существует.";
-            log.warn(message);
-            throw new UserDoesNotExistException(message);
+            throw dataDoesNotExist();
         }
     }
 
+    @Override
+    protected UserDoesNotExistException dataDoesNotExist() {
+        String message = "UserService: Пользователя c таким ID не существует.";
+        log.warn(message);
+        return new UserDoesNotExistException(message);
+    }
+
+    // Записи о дружбе переводятся из ID клиента в ID добавленных пользователей и добавляются частями по FRIENDS_CHUNK_SIZE
+    private BulkResult importFriendships(List<FriendshipEdge> friendships, Map<Integer, Integer> ids) {
+        Map<Integer, String> errors = new HashMap<>();
+        Map<Integer, FriendshipEdge> resolved = new LinkedHashMap<>();
+        Set<FriendshipEdge> unique = new HashSet<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            FriendshipEdge edge = friendships.get(i);
+            if (edge == null || edge.getUserId() == null || edge.getFriendId() == null) {
+                errors.put(i, "UserService: В записи о дружбе должны быть указаны userId и friendId.");
+                continue;
+            }
+            Integer userId = ids.get(edge.getUserId());
+            Integer friendId = ids.get(edge.getFriendId());
+            if (userId == null || friendId == null) {
+                errors.put(i, "UserService: Пользователь из записи о дружбе не был добавлен.");
+            } else if (userId.equals(friendId)) {
+                errors.put(i, "UserService: Пользователь не может добавить в друзья сам себя.");
+            } else {
+                FriendshipEdge resolvedEdge = new FriendshipEdge(userId, friendId);
+                if (unique.add(resolvedEdge)) {
+                    resolved.put(i, resolvedEdge);
+                } else {
+                    errors.put(i, "UserService: Запись о дружбе повторяется.");
+                }
+            }
+        }
+
+        List<Integer> indexes = List.copyOf(resolved.keySet());
+        for (int from = 0; from < indexes.size(); from += FRIENDS_CHUNK_SIZE) {
+            List<Integer> chunk = indexes.subList(from, Math.min(from + FRIENDS_CHUNK_SIZE, indexes.size()));
+            try {
+                friendStorage.addFriends(chunk.stream()
+                        .map(resolved::get)
+                        .collect(Collectors.toList()));
+            } catch (DataAccessException e) {
+                log.warn("UserService: Не удалось добавить часть записей о дружбе целиком, записи добавляются по одной: {}", e.getMessage());
+                for (Integer index : chunk) {
+                    try {
+                        friendStorage.addFriends(List.of(resolved.get(index)));
+                    } catch (DataAccessException itemException) {
+                        errors.put(index, "UserService: Не удалось сохранить запись о дружбе.");
+                    }
+                }
+            }
+        }
+
+        List<BulkItemResult> items = IntStream.range(0, friendships.size())
+                .mapToObj(i -> new BulkItemResult(i, null, errors.get(i)))
+                .collect(Collectors.toList());
+        log.debug("UserService: Импортировано записей о дружбе - {}, с ошибками - {}.", friendships.size() - errors.size(), errors.size());
+        return new BulkResult(friendships.size() - errors.size(), errors.size(), items);
+    }
+
     private static void validateNullNameAndSetLoginAsName(User user) {
         log.debug("UserService: Поступил запрос на проверку имени пользователя c логином {} на NULL или BLANK.", user.getLogin());
         if (user.getName() == null || user.getName().isBlank()) {
@@ -5,9 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import ru.yandex.practicum.filmorate.model.StorageData;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Getter
@@ -22,6 +25,16 @@ public abstract class AbstractStorage<T extends StorageData> implements Storage<
         return allData;
     }
 
+    // Получить страницу данных с ID больше after
+    public List<T> getPage(int after, int limit) {
+        log.debug("AbstractStorage: Получение страницы данных с ID больше {} размером {}", after, limit);
+        return storage.values().stream()
+                .filter(data -> data.getId() > after)
+                .sorted(Comparator.comparingInt(StorageData::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     // Добавить данные
     public T add(T data) {
         int id = getNextId();
@@ -31,10 +44,19 @@ public abstract class AbstractStorage<T extends StorageData> implements Storage<
         return data;
     }
 
+    // Добавить список данных
+    public List<Integer> addAll(List<T> data) {
+        return data.stream()
+                .map(item -> add(item).getId())
+                .collect(Collectors.toList());
+    }
+
     // Обновить данные
     public T update(T data) {
         int id = data.getId();
-        storage.replace(id, data);
+        if (storage.replace(id, data) == null) {
+            return null;
+        }
         log.debug("AbstractStorage: Обновлен фильм с id - {}", id);
         return data;
     }
@@ -45,6 +67,14 @@ public abstract class AbstractStorage<T extends StorageData> implements Storage<
         return storage.get(id);
     }
 
+    public List<T> getByIds(List<Integer> ids) {
+        log.debug("AbstractStorage: Получение данных по списку ID размером {}", ids.size());
+        return ids.stream()
+                .map(storage::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public T delete(int id) {
         log.debug("AbstractStorage: Удаление данных с id - {}", id);
         return storage.remove(id);
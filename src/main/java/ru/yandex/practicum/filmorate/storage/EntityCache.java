@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Ограниченный по размеру (LRU) и по времени жизни записей кэш собранных объектов по ID
+@Slf4j
+public class EntityCache<T> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry<T>> entries;
+    // Версия, на которой инвалидирован объект, по ID (не больше maxSize последних инвалидаций)
+    private final Map<Integer, Long> invalidations;
+    private long version;
+    // Объекты, прочитанные до этой версии, не кэшируются (очистка кэша или вытеснение старых инвалидаций)
+    private long floor;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public EntityCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<T>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    // Забытая инвалидация заменяется более строгим общим ограничением
+                    floor = Math.max(floor, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Получить объект из кэша (null - объекта нет в кэше или время его жизни истекло)
+    public synchronized T get(int id) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(id);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    // Получить объект из кэша без учета в статистике
+    public synchronized T peek(int id) {
+        Entry<T> entry = entries.get(id);
+        return entry == null || entry.isExpired(System.nanoTime()) ? null : entry.value;
+    }
+
+    // Проверить наличие объекта в кэше без учета в статистике
+    public synchronized boolean contains(int id) {
+        Entry<T> entry = entries.get(id);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    // Версия кэша увеличивается при каждой инвалидации, ее нужно получить до чтения объекта из БД
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Положить объект в кэш, если с момента получения version не было инвалидаций этого же объекта (иначе он мог устареть).
+    // Инвалидации других объектов не мешают кэшированию
+    public synchronized void put(int id, T value, long version) {
+        Long invalidatedAt = invalidations.get(id);
+        if (version < floor || (invalidatedAt != null && invalidatedAt > version)) {
+            log.trace("EntityCache: Объект с ID {} не помещен в кэш, так как он был инвалидирован во время его чтения.", id);
+            return;
+        }
+        entries.put(id, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(int id) {
+        version++;
+        markInvalidated(id);
+    }
+
+    public synchronized void invalidateAll(Collection<Integer> ids) {
+        version++;
+        ids.forEach(this::markInvalidated);
+    }
+
+    public synchronized void clear() {
+        version++;
+        floor = version;
+        entries.clear();
+        invalidations.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(entries.size(), maxSize, hits, misses, evictions);
+    }
+
+    private void markInvalidated(int id) {
+        entries.remove(id);
+        // Повторная инвалидация переносит запись в конец порядка вытеснения
+        invalidations.remove(id);
+        invalidations.put(id, version);
+    }
+
+    private static class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
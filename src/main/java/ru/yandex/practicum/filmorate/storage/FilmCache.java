@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+
+// Кэш собранных фильмов (с рейтингом, лайками и жанрами). Объекты из кэша не изменяются - при любом изменении фильма запись инвалидируется
+@Component
+public class FilmCache extends EntityCache<Film> {
+
+    @Autowired
+    public FilmCache(@Value("${filmorate.cache.films.max-size}") int maxSize,
+                     @Value("${filmorate.cache.films.ttl}") Duration ttl) {
+        super(maxSize, ttl);
+    }
+}
@@ -2,75 +2,327 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("FilmDbStorage")
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
 
-    private static final String SQL_VALIDATE_EXISTS = "SELECT COUNT(*) AS count " +
-            "FROM films " +
-            "WHERE film_id = ?";
     private static final String SQL_GET_BY_ID = "SELECT f.film_id, f.film_name, f.film_description, f.release_date, f.duration, f.rate, f.mpa_id, m.rating " +
             "FROM films AS f " +
             "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
             "WHERE film_id = ?";
+    private static final String SQL_GET_PAGE = "SELECT f.film_id, f.film_name, f.film_description, f.release_date, f.duration, f.rate, f.mpa_id, m.rating " +
+            "FROM films AS f " +
+            "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
+            "WHERE f.film_id > ? " +
+            "ORDER BY f.film_id " +
+            "LIMIT ?";
+    private static final String SQL_GET_BY_IDS = "SELECT f.film_id, f.film_name, f.film_description, f.release_date, f.duration, f.rate, f.mpa_id, m.rating " +
+            "FROM films AS f " +
+            "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
+            "WHERE f.film_id IN (:ids)";
+    private static final String SQL_EXPORT_FILMS = "SELECT f.film_id, f.film_name, f.film_description, f.release_date, f.duration, f.rate, f.mpa_id, m.rating " +
+            "FROM films AS f " +
+            "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
+            "ORDER BY f.film_id";
+    private static final String SQL_EXPORT_LIKES = "SELECT film_id, user_id " +
+            "FROM film_likes " +
+            "ORDER BY film_id";
+    private static final String SQL_EXPORT_GENRES = "SELECT film_id, genre_id " +
+            "FROM film_genre " +
+            "ORDER BY film_id, genre_id";
+    private static final String SQL_ADD = "INSERT INTO films (film_name, film_description, release_date, duration, rate, mpa_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE = "UPDATE films " +
+            "SET film_name = ?, film_description = ?, release_date = ?, duration = ?, rate = ?, mpa_id = ? " +
+            "WHERE film_id = ?";
+    // Жанры и лайки фильма одним запросом: kind = 'g' - ID жанра, kind = 'l' - ID пользователя
+    private static final String SQL_GET_GENRE_AND_LIKE_IDS = "SELECT 'g' AS kind, genre_id AS ref_id " +
+            "FROM film_genre " +
+            "WHERE film_id = ? " +
+            "UNION ALL " +
+            "SELECT 'l' AS kind, user_id AS ref_id " +
+            "FROM film_likes " +
+            "WHERE film_id = ?";
+    private static final String SQL_ADD_GENRE = "INSERT INTO film_genre(film_id, genre_id) " +
+            "VALUES (?, ?)";
+    private static final String SQL_DELETE_GENRE = "DELETE FROM film_genre " +
+            "WHERE film_id = ? AND genre_id = ?";
+    private static final String SQL_DELETE_GENRES_RETURNING_IDS = "SELECT genre_id " +
+            "FROM OLD TABLE (DELETE FROM film_genre WHERE film_id = ?) " +
+            "ORDER BY genre_id";
+    private static final String SQL_DELETE_LIKES_RETURNING_USERS = "SELECT user_id " +
+            "FROM OLD TABLE (DELETE FROM film_likes WHERE film_id = ?)";
+    // Название рейтинга берется из справочника при сборке ответа
+    private static final String SQL_DELETE_RETURNING = "SELECT film_id, film_name, film_description, release_date, duration, rate, mpa_id, " +
+            "CAST(NULL AS VARCHAR) AS rating " +
+            "FROM OLD TABLE (DELETE FROM films WHERE film_id = ?)";
+    private static final int EXPORT_FETCH_SIZE = 500;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final ResultDbEditor resultDbEditor;
+    private final FilmCache filmCache;
+    private final PopularityIndex popularityIndex;
+    private final RateAccumulator rateAccumulator;
+    private final FilmIdIndex filmIds;
+    private final SimpleJdbcInsert filmInsert;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, ResultDbEditor resultDbEditor) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, ResultDbEditor resultDbEditor,
+                         FilmCache filmCache, PopularityIndex popularityIndex, RateAccumulator rateAccumulator, FilmIdIndex filmIds) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
         this.resultDbEditor = resultDbEditor;
+        this.filmCache = filmCache;
+        this.popularityIndex = popularityIndex;
+        this.rateAccumulator = rateAccumulator;
+        this.filmIds = filmIds;
+        // Метаданные таблицы читаются один раз при первой вставке, дальше используется скомпилированный запрос
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("film_name", "film_description", "release_date", "duration", "rate", "mpa_id")
+                .usingGeneratedKeyColumns("film_id");
     }
 
     @Override
     public List<Film> getAll() {
+        return getAll(FilmProjection.FULL);
+    }
+
+    @Override
+    public List<Film> getAll(FilmProjection projection) {
         log.debug("FilmDbStorage: Получен запрос к хранилищу на получение всех фильмов.");
         String sql = "SELECT * " +
                 "FROM films as f " +
-                "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id ";
-        List<Film> result = jdbcTemplate.query(sql, RowMapper::mapRowToFilm);
+                "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
+                "ORDER BY f.film_id";
+        List<Film> result = rateAccumulator.read(() -> jdbcTemplate.query(sql, this::mapRowToFilm));
 
         log.debug("FilmDbStorage: Получен список всех фильмов длиной {}.", result.size());
-        return resultDbEditor.setMpaLikesGenre(result);
+        return resultDbEditor.setLikesGenre(result, projection);
+    }
+
+    @Override
+    public List<Film> getPage(int after, int limit) {
+        return getPage(after, limit, FilmProjection.FULL);
     }
 
     @Override
+    public List<Film> getPage(int after, int limit, FilmProjection projection) {
+        log.debug("FilmDbStorage: Получен запрос к хранилищу на получение страницы фильмов с ID больше {} размером {}.", after, limit);
+        List<Film> result = rateAccumulator.read(() -> jdbcTemplate.query(SQL_GET_PAGE, this::mapRowToFilm, after, limit));
+
+        log.debug("FilmDbStorage: Получена страница фильмов длиной {}.", result.size());
+        return resultDbEditor.setLikesGenre(result, projection);
+    }
+
+    // Фильмы из кэша берутся как есть, остальные загружаются одним запросом IN (...) с пакетной загрузкой лайков и жанров
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        return getByIds(ids, FilmProjection.FULL);
+    }
+
+    // Неполные фильмы (projection не FULL) в кэш не помещаются
+    @Override
+    public List<Film> getByIds(List<Integer> ids, FilmProjection projection) {
+        log.debug("FilmDbStorage: Получен запрос к хранилищу на получение фильмов по списку ID размером {}.", ids.size());
+        Map<Integer, Film> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!filmIds.contains(id)) {
+                continue;
+            }
+            Film cached = filmCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long cacheVersion = filmCache.getVersion();
+            List<Film> loaded = rateAccumulator.read(() -> namedParameterJdbcTemplate.query(SQL_GET_BY_IDS,
+                    new MapSqlParameterSource("ids", missing), this::mapRowToFilm));
+            resultDbEditor.setLikesGenre(loaded, projection);
+            for (Film film : loaded) {
+                found.put(film.getId(), film);
+                if (projection.isFull()) {
+                    filmCache.put(film.getId(), film, cacheVersion);
+                }
+            }
+            log.trace("FilmDbStorage: Из БД загружено фильмов - {}.", loaded.size());
+        }
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Выгрузка всех фильмов: три упорядоченных по film_id курсора (фильмы, лайки, жанры) читаются синхронно
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        log.debug("FilmDbStorage: Получен запрос к хранилищу на выгрузку всех фильмов.");
+        int exported = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement filmsStatement = prepareForwardOnly(connection, SQL_EXPORT_FILMS);
+                 PreparedStatement likesStatement = prepareForwardOnly(connection, SQL_EXPORT_LIKES);
+                 PreparedStatement genresStatement = prepareForwardOnly(connection, SQL_EXPORT_GENRES);
+                 ResultSet films = filmsStatement.executeQuery();
+                 ResultSet likes = likesStatement.executeQuery();
+                 ResultSet genres = genresStatement.executeQuery()) {
+                boolean hasLike = likes.next();
+                boolean hasGenre = genres.next();
+                int count = 0;
+
+                while (films.next()) {
+                    Film film = mapRowToFilm(films, count);
+                    int id = film.getId();
+
+                    while (hasLike && likes.getInt("film_id") <= id) {
+                        if (likes.getInt("film_id") == id) {
+                            film.getLikes().add(RowMapper.mapRowToLikes(likes, likes.getRow()));
+                        }
+                        hasLike = likes.next();
+                    }
+
+                    while (hasGenre && genres.getInt("film_id") <= id) {
+                        if (genres.getInt("film_id") == id) {
+                            film.getGenres().add(resultDbEditor.mapRowToGenre(genres, genres.getRow()));
+                        }
+                        hasGenre = genres.next();
+                    }
+
+                    consumer.accept(film);
+                    count++;
+                }
+                return count;
+            }
+        });
+        log.debug("FilmDbStorage: Выгружено фильмов - {}.", exported);
+    }
+
+    @Override
+    @Transactional
     public Film add(Film data) {
         //Добавляем фильм в БД
         log.debug("FilmDbStorage: Получен запрос к хранилищу на добавление фильма {}.", data.getName());
-        SimpleJdbcInsert filmJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        int id = filmJdbcInsert.executeAndReturnKey(data.toMap()).intValue();
+        int id = filmInsert.executeAndReturnKey(data.toMap()).intValue();
+        filmIds.add(id);
         data.setId(id);
+        int rate = data.getRate();
+        TransactionCallbacks.afterCommit(() -> popularityIndex.setRate(id, rate));
         log.trace("FilmDbStorage: В хранилище добавлен фильм с ID - {}.", id);
 
         //Добавляем жанры в БД
-        updateGenre(data);
+        writeGenres(id, Set.of(), genreIds(data));
         log.debug("FilmDbStorage: В хранилище жанров добавлен фильм с ID - {} и его жанры.", id);
 
-        return get(id);
+        // У нового фильма нет лайков, поэтому ответ собирается из переданных данных
+        Film result = resultDbEditor.assembleFilm(data, Set.of());
+        cacheAfterCommit(result, filmCache.getVersion());
+        return result;
     }
 
+    // Фильмы и их жанры добавляются двумя пакетными запросами, ID фильмов берутся из сгенерированных ключей
     @Override
+    @Transactional
+    public List<Integer> addAll(List<Film> films) {
+        log.debug("FilmDbStorage: Получен запрос к хранилищу на пакетное добавление фильмов в количестве {}.", films.size());
+        if (films.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SQL_ADD, Statement.RETURN_GENERATED_KEYS)) {
+                for (Film film : films) {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setObject(3, film.getReleaseDate());
+                    statement.setLong(4, film.getDuration());
+                    statement.setInt(5, film.getRate());
+                    statement.setInt(6, film.getMpa().getId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Integer> generated = new ArrayList<>(films.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getInt(1));
+                    }
+                }
+                return generated;
+            }
+        });
+        if (ids.size() != films.size()) {
+            throw new DataRetrievalFailureException(String.format(
+                    "FilmDbStorage: Получено %s сгенерированных ID для %s добавленных фильмов.", ids.size(), films.size()));
+        }
+
+        filmIds.add(ids);
+
+        List<Object[]> genres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            int id = ids.get(i);
+            films.get(i).getGenres().forEach(genre -> genres.add(new Object[]{id, genre.getId()}));
+        }
+        if (!genres.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_ADD_GENRE, genres);
+        }
+
+        TransactionCallbacks.afterCommit(() -> {
+            for (int i = 0; i < films.size(); i++) {
+                popularityIndex.setRate(ids.get(i), films.get(i).getRate());
+            }
+        });
+        log.debug("FilmDbStorage: В хранилище добавлено фильмов - {}, жанров фильмов - {}.", ids.size(), genres.size());
+        return ids;
+    }
+
+    @Override
+    @Transactional
     public Film update(Film data) {
         // Обновляем фильм
         int id = data.getId();
         log.debug("FilmDbStorage: Получен запрос к хранилищу на обновление фильма с ID - {}.", id);
+        if (!filmIds.contains(id)) {
+            log.debug("FilmDbStorage: Фильм с ID - {} для обновления не найден.", id);
+            return null;
+        }
 
-        String sql = "UPDATE films " +
-                "SET film_name = ?, film_description = ?, release_date = ?, duration = ?, rate = ?, mpa_id = ? "
-                + "WHERE film_id = ?";
-
-        jdbcTemplate.update(sql,
+        // Новый rate перезаписывает накопленные к этому моменту изменения от лайков. Они вычитаются из счетчика
+        // только после фиксации транзакции, поэтому при откате не теряются, а лайки во время обновления сохраняются
+        int overwritten = rateAccumulator.getPending(id);
+        int updated = jdbcTemplate.update(SQL_UPDATE,
                 data.getName(),
                 data.getDescription(),
                 data.getReleaseDate(),
@@ -78,77 +330,155 @@ public class FilmDbStorage implements FilmStorage {
                 data.getRate(),
                 data.getMpa().getId(),
                 data.getId());
+        if (updated == 0) {
+            log.debug("FilmDbStorage: Фильм с ID - {} для обновления не найден.", id);
+            return null;
+        }
+        int rate = data.getRate();
+        TransactionCallbacks.afterCommit(() -> {
+            if (overwritten != 0) {
+                rateAccumulator.add(id, -overwritten);
+            }
+            popularityIndex.setRate(id, rate);
+        });
         log.trace("FilmDbStorage: В хранилище обновлен фильм с ID - {}.", id);
 
-        //Удаляем жанры у фильма
-        deleteFilmGenre(id);
+        // Сохраненные жанры и лайки берутся из кэша, а при его отсутствии - одним запросом
+        Set<Integer> storedGenreIds = new HashSet<>();
+        Set<Integer> likes = new HashSet<>();
+        Film cached = filmCache.peek(id);
+        if (cached != null) {
+            storedGenreIds.addAll(genreIds(cached));
+            likes.addAll(cached.getLikes());
+        } else {
+            jdbcTemplate.query(SQL_GET_GENRE_AND_LIKE_IDS, (RowCallbackHandler) rs ->
+                    ("g".equals(rs.getString("kind")) ? storedGenreIds : likes).add(rs.getInt("ref_id")), id, id);
+        }
+        filmCache.invalidate(id);
+        long cacheVersion = filmCache.getVersion();
 
-        //Добавляем новые жанры в БД
-        updateGenre(data);
-        log.debug("FilmDbStorage: В хранилище жанров добавлен фильм с ID - {} и его жанры.", id);
+        //Записываем только разницу между сохраненными и новыми жанрами
+        writeGenres(id, storedGenreIds, genreIds(data));
+        log.debug("FilmDbStorage: В хранилище жанров обновлены жанры фильма с ID - {}.", id);
 
-        return get(data.getId());
+        Film result = resultDbEditor.assembleFilm(data, likes);
+        cacheAfterCommit(result, cacheVersion);
+        return result;
     }
 
     @Override
     public Film get(int id) {
+        return get(id, FilmProjection.FULL);
+    }
+
+    @Override
+    public Film get(int id, FilmProjection projection) {
         log.debug("FilmDbStorage: Получен запрос к хранилищу на получение фильма с ID - {}.", id);
-        Film result = jdbcTemplate.queryForObject(SQL_GET_BY_ID, RowMapper::mapRowToFilm, id);
+        if (!filmIds.contains(id)) {
+            log.debug("FilmDbStorage: Фильм с ID - {} не найден.", id);
+            return null;
+        }
+        Film cached = filmCache.get(id);
+        if (cached != null) {
+            log.trace("FilmDbStorage: Фильм с ID - {} получен из кэша.", id);
+            return cached;
+        }
+
+        long cacheVersion = filmCache.getVersion();
+        Film result = DataAccessUtils.singleResult(rateAccumulator.read(() -> jdbcTemplate.query(SQL_GET_BY_ID, this::mapRowToFilm, id)));
+        if (result == null) {
+            log.debug("FilmDbStorage: Фильм с ID - {} не найден.", id);
+            return null;
+        }
         log.trace("FilmDbStorage: Получен фильм с ID - {}.", result.getId());
-        resultDbEditor.setLikes(result);
-        log.trace("FilmDbStorage: Установлены значения списка лайков фильма с ID - {}.", result.getId());
-        resultDbEditor.setGenre(result);
-        log.debug("FilmDbStorage: Установлены значения списка жанров фильма с ID - {}.", result.getId());
+        resultDbEditor.setLikesGenre(List.of(result), projection);
+        log.debug("FilmDbStorage: Установлены значения списков лайков и жанров фильма с ID - {}.", result.getId());
+        if (projection.isFull()) {
+            filmCache.put(id, result, cacheVersion);
+        }
         return result;
     }
 
+    // Фильм удаляется одной транзакцией из трех запросов. Удаленные строки возвращаются из OLD TABLE,
+    // поэтому ответ собирается из того же снимка данных без повторного чтения фильма
     @Override
+    @Transactional
     public Film delete(int id) {
         log.debug("FilmDbStorage: Получен запрос к хранилищу на удаление фильма с ID - {}.", id);
+        if (!filmIds.contains(id)) {
+            return null;
+        }
 
-        //Удаляем ссылку на фильм из film_genre
-        String sqlDeleteGenre = "DELETE FROM film_genre WHERE film_id = ?";
-        jdbcTemplate.update(sqlDeleteGenre, id);
+        //Удаляем ссылки на фильм из film_genre и film_likes
+        List<Integer> genreIds = jdbcTemplate.query(SQL_DELETE_GENRES_RETURNING_IDS, (rs, rowNum) -> rs.getInt("genre_id"), id);
         log.trace("FilmDbStorage: Удалены ссылки на фильм с ID - {} из хранилища жанров.", id);
-
-        //Удаляем ссылку на фильм из film_likes
-        String sqlDeleteLike = "DELETE FROM film_likes WHERE film_id = ?";
-        jdbcTemplate.update(sqlDeleteLike, id);
+        Set<Integer> likes = new HashSet<>(jdbcTemplate.query(SQL_DELETE_LIKES_RETURNING_USERS, RowMapper::mapRowToLikes, id));
         log.trace("FilmDbStorage: Удалены ссылки на фильм с ID - {} из хранилища лайков.", id);
 
         //Удаляем фильм
-        String sqlDelete = "DELETE FROM films WHERE film_id = ?";
-        Film deletedFilm = get(id);
-        jdbcTemplate.update(sqlDelete, id);
+        Film deletedFilm = DataAccessUtils.singleResult(jdbcTemplate.query(SQL_DELETE_RETURNING, this::mapRowToFilm, id));
+        if (deletedFilm == null) {
+            log.debug("FilmDbStorage: Фильм с ID - {} для удаления не найден.", id);
+            return null;
+        }
+        genreIds.forEach(genreId -> deletedFilm.getGenres().add(new Genre(genreId, null)));
+        filmIds.remove(id);
+        TransactionCallbacks.afterCommit(() -> {
+            filmCache.invalidate(id);
+            popularityIndex.remove(id);
+            rateAccumulator.reset(id);
+        });
         log.debug("FilmDbStorage: Удален фильм с ID - {}.", id);
-        return deletedFilm;
+        return resultDbEditor.assembleFilm(deletedFilm, likes);
     }
 
+    // Наличие фильма определяется по индексу ID без запроса к БД
     @Override
     public boolean validateDataExists(int id) {
-        log.debug("FilmDbStorage: Поступил запрос сервиса на проверку наличия фильма с ID {} в базе данных фильмов.", id);
-        int count = jdbcTemplate.queryForObject(SQL_VALIDATE_EXISTS, RowMapper::mapRowToCount, id);
-        log.debug("FilmDbStorage: Получен ответ хранилища на запрос сервиса на проверку наличия фильма с ID {} в базе данных фильмов. Наличие записей с нужным ID - {}", id, count);
-        return count != 0;
+        boolean exists = filmIds.contains(id);
+        log.debug("FilmDbStorage: Проверка наличия фильма с ID {} по индексу ID - {}.", id, exists);
+        return exists;
     }
 
-    private void deleteFilmGenre(int id) {
-        log.trace("FilmDbStorage: Получен запрос на удаление фильма с ID - {} в хранилище жанров.", id);
-        String sqlDeleteGenres = "DELETE FROM film_genre WHERE film_id = ?";
-        jdbcTemplate.update(sqlDeleteGenres, id);
+    // rate фильма учитывает изменения от лайков, еще не записанные в БД
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        return rateAccumulator.applyPending(RowMapper.mapRowToFilm(rs, rowNum));
     }
 
-    private void updateGenre(Film data) {
-        int id = data.getId();
-        log.debug("FilmDbStorage: Получен запрос на обновление жанров фильма с ID - {}.", id);
+    private static PreparedStatement prepareForwardOnly(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(EXPORT_FETCH_SIZE);
+        return statement;
+    }
 
-        String sqlAddGenre = "INSERT INTO film_genre(film_id, genre_id) " +
-                "values (?, ?)";
+    // Собранный фильм попадает в кэш только после фиксации транзакции, чтобы при откате в кэше не остались несохраненные данные
+    private void cacheAfterCommit(Film film, long cacheVersion) {
+        TransactionCallbacks.afterCommit(() -> filmCache.put(film.getId(), film, cacheVersion));
+    }
 
-        for (Genre genre : data.getGenres()) {
-            jdbcTemplate.update(sqlAddGenre,
-                    id,
-                    genre.getId());
+    private static Set<Integer> genreIds(Film data) {
+        return data.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
+    }
+
+    // Удаляет жанры, которых нет в новом наборе, и добавляет отсутствующие - не более двух пакетных запросов
+    private void writeGenres(int id, Set<Integer> stored, Set<Integer> requested) {
+        List<Object[]> toDelete = stored.stream()
+                .filter(genreId -> !requested.contains(genreId))
+                .map(genreId -> new Object[]{id, genreId})
+                .collect(Collectors.toList());
+        List<Object[]> toAdd = requested.stream()
+                .filter(genreId -> !stored.contains(genreId))
+                .map(genreId -> new Object[]{id, genreId})
+                .collect(Collectors.toList());
+        log.trace("FilmDbStorage: Для фильма с ID - {} удаляется жанров - {}, добавляется - {}.", id, toDelete.size(), toAdd.size());
+
+        if (!toDelete.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_DELETE_GENRE, toDelete);
+        }
+        if (!toAdd.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_ADD_GENRE, toAdd);
         }
     }
 }
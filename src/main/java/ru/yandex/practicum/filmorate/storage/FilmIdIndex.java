@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Индекс ID сохраненных фильмов
+@Component
+public class FilmIdIndex extends IdPresenceIndex {
+
+    @Autowired
+    public FilmIdIndex(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "SELECT film_id FROM films");
+    }
+}
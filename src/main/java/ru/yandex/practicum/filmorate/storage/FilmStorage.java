@@ -1,7 +1,24 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage extends Storage<Film>  {
 
+    // Получить все фильмы только с полями, запрошенными в projection
+    List<Film> getAll(FilmProjection projection);
+
+    Film get(int id, FilmProjection projection);
+
+    // Получить страницу фильмов с ID больше after только с полями, запрошенными в projection
+    List<Film> getPage(int after, int limit, FilmProjection projection);
+
+    // Получить фильмы по списку ID в порядке списка только с полями, запрошенными в projection
+    List<Film> getByIds(List<Integer> ids, FilmProjection projection);
+
+    // Передать все фильмы по одному в consumer, не собирая их в список
+    void exportAll(Consumer<Film> consumer);
 }
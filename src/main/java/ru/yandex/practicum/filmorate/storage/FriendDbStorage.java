@@ -4,12 +4,26 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Repository("FriendStorage")
@@ -17,24 +31,71 @@ import java.util.stream.Collectors;
 @Getter
 public class FriendDbStorage {
 
-    private final Storage<User> storage;
+    public static final int MAX_SUGGESTIONS = 100;
+
+    private static final String SQL_ADD_FRIEND = "INSERT INTO user_friends(user_id, friend_id) " +
+            "VALUES (?,?)";
+    private static final String SQL_ADD_FRIEND_IF_ABSENT = "INSERT INTO user_friends(user_id, friend_id) " +
+            "SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
+    private static final String SQL_DELETE_FRIEND = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
+    // Кандидат - друг друга пользователя, не являющийся самим пользователем или его другом
+    private static final String SQL_GET_SUGGESTIONS = "SELECT f2.friend_id AS user_id, COUNT(*) AS mutual " +
+            "FROM user_friends AS f1 " +
+            "JOIN user_friends AS f2 ON f2.user_id = f1.friend_id " +
+            "WHERE f1.user_id = ? AND f2.friend_id <> ? " +
+            "AND f2.friend_id NOT IN (SELECT friend_id FROM user_friends WHERE user_id = ?) " +
+            "GROUP BY f2.friend_id " +
+            "ORDER BY mutual DESC, user_id " +
+            "LIMIT ?";
+    private static final String SQL_GET_FRIENDS = "SELECT u.user_id, u.email, u.user_name, u.login, u.birthday " +
+            "FROM user_friends AS uf " +
+            "JOIN users AS u ON uf.friend_id = u.user_id " +
+            "WHERE uf.user_id = ? " +
+            "ORDER BY u.user_id";
+    private static final String SQL_GET_COMMON_FRIENDS = "SELECT u.user_id, u.email, u.user_name, u.login, u.birthday " +
+            "FROM user_friends AS f1 " +
+            "JOIN user_friends AS f2 ON f2.friend_id = f1.friend_id " +
+            "JOIN users AS u ON u.user_id = f1.friend_id " +
+            "WHERE f1.user_id = ? AND f2.user_id = ? " +
+            "ORDER BY u.user_id";
+    private static final String SQL_COUNT_COMMON_FRIENDS = "SELECT COUNT(*) " +
+            "FROM user_friends AS f1 " +
+            "JOIN user_friends AS f2 ON f2.friend_id = f1.friend_id " +
+            "WHERE f1.user_id = ? AND f2.user_id = ?";
+    private static final String SQL_COUNT_COMMON_FRIENDS_BY_USER_IDS = "SELECT f2.user_id AS other_id, COUNT(*) AS count " +
+            "FROM user_friends AS f1 " +
+            "JOIN user_friends AS f2 ON f2.friend_id = f1.friend_id " +
+            "WHERE f1.user_id = :userId AND f2.user_id IN (:ids) " +
+            "GROUP BY f2.user_id";
+
+    private final UserStorage storage;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final ResultDbEditor resultDbEditor;
+    private final FriendshipIndex friendshipIndex;
+    private final SuggestionCache suggestionCache;
+    private final int suggestionsMaxEdges;
 
 
     @Autowired
-    public FriendDbStorage(JdbcTemplate jdbcTemplate, @Qualifier("UserDbStorage") Storage<User> storage, ResultDbEditor resultDbEditor) {
+    public FriendDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, @Qualifier("UserDbStorage") UserStorage storage, ResultDbEditor resultDbEditor,
+                           FriendshipIndex friendshipIndex, SuggestionCache suggestionCache,
+                           @Value("${filmorate.friends.suggestions.max-edges:100000}") int suggestionsMaxEdges) {
         this.storage = storage;
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
         this.resultDbEditor = resultDbEditor;
+        this.friendshipIndex = friendshipIndex;
+        this.suggestionCache = suggestionCache;
+        this.suggestionsMaxEdges = suggestionsMaxEdges;
     }
 
     public List<User> addFriend(int userId, int friendId) {
         // Добавляем запись о дружбе
         log.debug("FriendStorage: Получен запрос к хранилищу от пользователя c ID {} на добавление в друзья пользователя с ID {}.", userId, friendId);
-        String sql = "INSERT INTO user_friends(user_id, friend_id) " +
-                "VALUES (?,?)";
-        jdbcTemplate.update(sql, userId, friendId);
+        jdbcTemplate.update(SQL_ADD_FRIEND, userId, friendId);
+        afterFriendshipsChanged(List.of(userId), () -> friendshipIndex.add(userId, friendId));
         log.debug("FriendStorage: Запись о дружбе пользователя c ID {} с пользователем с ID {} успешно добавлена в хранилище.", userId, friendId);
 
         // Получаем результат
@@ -44,11 +105,40 @@ public class FriendDbStorage {
         return result;
     }
 
+    // Добавить записи о дружбе одним пакетным запросом (уже существующие записи пропускаются)
+    @Transactional
+    public void addFriends(List<FriendshipEdge> edges) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на пакетное добавление записей о дружбе в количестве {}.", edges.size());
+        if (edges.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = edges.stream()
+                .map(edge -> new Object[]{edge.getUserId(), edge.getFriendId(), edge.getUserId(), edge.getFriendId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(SQL_ADD_FRIEND_IF_ABSENT, args);
+        afterFriendshipsChanged(userIds(edges), () -> edges.forEach(edge -> friendshipIndex.add(edge.getUserId(), edge.getFriendId())));
+        log.debug("FriendStorage: В хранилище добавлено записей о дружбе - {}.", edges.size());
+    }
+
+    // Удалить записи о дружбе одним пакетным запросом
+    @Transactional
+    public void deleteFriends(List<FriendshipEdge> edges) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на пакетное удаление записей о дружбе в количестве {}.", edges.size());
+        if (edges.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = edges.stream()
+                .map(edge -> new Object[]{edge.getUserId(), edge.getFriendId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(SQL_DELETE_FRIEND, args);
+        afterFriendshipsChanged(userIds(edges), () -> edges.forEach(edge -> friendshipIndex.remove(edge.getUserId(), edge.getFriendId())));
+    }
+
     public List<User> deleteFriend(int userId, int friendId) {
         // Удаляем запись о дружбе
         log.debug("FriendStorage: Получен запрос к хранилищу от пользователя c ID {} на удаление из друзей пользователя с ID {}.", userId, friendId);
-        String sqlDelete = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sqlDelete, userId, friendId);
+        jdbcTemplate.update(SQL_DELETE_FRIEND, userId, friendId);
+        afterFriendshipsChanged(List.of(userId), () -> friendshipIndex.remove(userId, friendId));
         log.debug("FriendStorage: Запись о дружбе пользователя c ID {} с пользователем с ID {} успешно удалена из хранилища.", userId, friendId);
 
         List<User> result = new ArrayList<>();
@@ -57,35 +147,127 @@ public class FriendDbStorage {
         return result;
     }
 
+    // ID друзей берутся из индекса дружбы, из БД одним запросом читаются только профили пользователей.
+    // При отключенном индексе друзья читаются одним запросом с JOIN
     public List<User> getAllFriends(int userId) {
         log.debug("FriendStorage: Получен запрос к хранилищу на получение всех друзей пользователя c ID - {}.", userId);
-        String sql = "SELECT uf.friend_id, u.USER_ID, u.email, u.user_name, u.login, u.birthday " +
-                "FROM USER_FRIENDS AS uf " +
-                "LEFT JOIN users AS u ON uf.FRIEND_ID = u.USER_ID " +
-                "WHERE uf.USER_ID = ?";
-        List<User> result = jdbcTemplate.query(sql, RowMapper::mapRowToUser, userId);
+        List<User> result;
+        if (friendshipIndex.isLoaded()) {
+            result = storage.getByIds(toList(friendshipIndex.getFriends(userId)));
+        } else {
+            result = resultDbEditor.setFriends(jdbcTemplate.query(SQL_GET_FRIENDS, RowMapper::mapRowToUser, userId));
+        }
         log.debug("FriendStorage: Получен список всех друзей пользователя c ID - {} размером {}.", userId, result.size());
-
-        result.forEach(resultDbEditor::setFriends);
-        log.trace("FriendStorage: Обновлены поля friends полученного списка всех друзей пользователя c ID - {}.", userId);
-
         return result;
     }
 
+    // Общие друзья находятся пересечением отсортированных списков друзей из индекса дружбы,
+    // а при отключенном индексе - одним запросом, возвращающим сразу профили пользователей
     public List<User> getCommonFriends(int userId, int otherId) {
-        // Получаем список ID общих друзей
         log.debug("FriendStorage: Получен запрос к хранилищу на получение общих друзей пользователей c ID {} и {}.", userId, otherId);
-        String sql = "SELECT friend_id " +
-                "FROM user_friends " +
-                "WHERE user_id = ? and friend_id IN (SELECT friend_id " +
-                "FROM user_friends " +
-                "WHERE user_id = ?)";
-        List<Integer> common_id = jdbcTemplate.query(sql, RowMapper::mapRowToFriendId, userId, otherId);
-        log.debug("FriendStorage: Получен спикок ID общих друзей пользователей c ID {} и {}.", userId, otherId);
-
-        // Получаем список пользователей - общих друзей
-        return common_id.stream()
-                .map(storage::get)
+        List<User> result;
+        if (friendshipIndex.isLoaded()) {
+            result = storage.getByIds(toList(friendshipIndex.getCommonFriends(userId, otherId)));
+        } else {
+            result = resultDbEditor.setFriends(jdbcTemplate.query(SQL_GET_COMMON_FRIENDS, RowMapper::mapRowToUser, userId, otherId));
+        }
+        log.debug("FriendStorage: Получен список общих друзей пользователей c ID {} и {} размером {}.", userId, otherId, result.size());
+        return result;
+    }
+
+    // Карточки друзей без их собственных списков друзей: друзья друзей не загружаются
+    public List<UserCard> getAllFriendCards(int userId) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на получение карточек друзей пользователя c ID - {}.", userId);
+        List<UserCard> result;
+        if (friendshipIndex.isLoaded()) {
+            result = storage.getCardsByIds(toList(friendshipIndex.getFriends(userId)));
+        } else {
+            result = resultDbEditor.toCards(jdbcTemplate.query(SQL_GET_FRIENDS, RowMapper::mapRowToUser, userId));
+        }
+        log.debug("FriendStorage: Получены карточки друзей пользователя c ID - {} в количестве {}.", userId, result.size());
+        return result;
+    }
+
+    public List<UserCard> getCommonFriendCards(int userId, int otherId) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на получение карточек общих друзей пользователей c ID {} и {}.", userId, otherId);
+        List<UserCard> result;
+        if (friendshipIndex.isLoaded()) {
+            result = storage.getCardsByIds(toList(friendshipIndex.getCommonFriends(userId, otherId)));
+        } else {
+            result = resultDbEditor.toCards(jdbcTemplate.query(SQL_GET_COMMON_FRIENDS, RowMapper::mapRowToUser, userId, otherId));
+        }
+        log.debug("FriendStorage: Получены карточки общих друзей пользователей c ID {} и {} в количестве {}.", userId, otherId, result.size());
+        return result;
+    }
+
+    public int countCommonFriends(int userId, int otherId) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на подсчет общих друзей пользователей c ID {} и {}.", userId, otherId);
+        if (friendshipIndex.isLoaded()) {
+            return friendshipIndex.countCommonFriends(userId, otherId);
+        }
+        return jdbcTemplate.queryForObject(SQL_COUNT_COMMON_FRIENDS, Integer.class, userId, otherId);
+    }
+
+    // Количество общих друзей пользователя с каждым из otherIds (в порядке списка): пересечения в индексе дружбы,
+    // а при отключенном индексе - один запрос с группировкой. Пользователи без общих друзей получают 0
+    public List<MutualFriendsCount> countCommonFriends(int userId, List<Integer> otherIds) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на подсчет общих друзей пользователя c ID {} с пользователями в количестве {}.",
+                userId, otherIds.size());
+        if (friendshipIndex.isLoaded()) {
+            return otherIds.stream()
+                    .map(otherId -> new MutualFriendsCount(userId, otherId, friendshipIndex.countCommonFriends(userId, otherId)))
+                    .collect(Collectors.toList());
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (!otherIds.isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource("userId", userId).addValue("ids", otherIds);
+            namedParameterJdbcTemplate.query(SQL_COUNT_COMMON_FRIENDS_BY_USER_IDS, params, (RowCallbackHandler) rs ->
+                    counts.put(rs.getInt("other_id"), rs.getInt("count")));
+        }
+        return otherIds.stream()
+                .map(otherId -> new MutualFriendsCount(userId, otherId, counts.getOrDefault(otherId, 0)))
+                .collect(Collectors.toList());
+    }
+
+    // Рекомендации друзей кэшируются по ID пользователя: в кэше хранятся MAX_SUGGESTIONS лучших, из них берутся первые limit
+    public List<MutualFriendsCount> getSuggestions(int userId, int limit) {
+        log.debug("FriendStorage: Получен запрос к хранилищу на получение {} рекомендаций друзей пользователя c ID {}.", limit, userId);
+        List<MutualFriendsCount> suggestions = suggestionCache.get(userId);
+        if (suggestions == null) {
+            long cacheVersion = suggestionCache.getVersion();
+            if (friendshipIndex.isLoaded()) {
+                suggestions = friendshipIndex.getSuggestions(userId, MAX_SUGGESTIONS, suggestionsMaxEdges);
+            } else {
+                suggestions = List.copyOf(jdbcTemplate.query(SQL_GET_SUGGESTIONS, (rs, rowNum) ->
+                        new MutualFriendsCount(userId, rs.getInt("user_id"), rs.getInt("mutual")), userId, userId, userId, MAX_SUGGESTIONS));
+            }
+            suggestionCache.put(userId, suggestions, cacheVersion);
+            log.debug("FriendStorage: Получено рекомендаций друзей пользователя c ID {} - {}.", userId, suggestions.size());
+        }
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    // Изменение дружбы применяется к индексу после фиксации транзакции. Рекомендации (друзья друзей) меняются только
+    // у пользователей с измененным списком друзей и у тех, у кого они в друзьях - их записи кэша инвалидируются
+    private void afterFriendshipsChanged(Collection<Integer> changedUserIds, Runnable indexUpdate) {
+        Set<Integer> affected = new HashSet<>(changedUserIds);
+        affected.addAll(resultDbEditor.getUsersByFriendIds(changedUserIds));
+        TransactionCallbacks.afterCommit(() -> {
+            indexUpdate.run();
+            suggestionCache.invalidateAll(affected);
+        });
+    }
+
+    private static Set<Integer> userIds(List<FriendshipEdge> edges) {
+        return edges.stream()
+                .map(FriendshipEdge::getUserId)
+                .collect(Collectors.toSet());
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids)
+                .boxed()
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,297 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
+
+import javax.annotation.PostConstruct;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Граф дружбы в памяти: для каждого пользователя хранится отсортированный массив ID друзей.
+// Заполняется из БД при старте и обновляется после фиксации изменений в user_friends.
+// Массивы не изменяются после публикации (при изменении создается новый массив), поэтому их можно отдавать без копирования.
+// Индекс можно отключить настройкой filmorate.friends.index-enabled, тогда друзья читаются из БД
+@Component
+@Slf4j
+public class FriendshipIndex {
+
+    private static final int[] EMPTY = new int[0];
+    private static final String SQL_GET_FRIENDSHIPS = "SELECT user_id, friend_id " +
+            "FROM user_friends " +
+            "ORDER BY user_id, friend_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Map<Integer, int[]> friends = new HashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public FriendshipIndex(JdbcTemplate jdbcTemplate, @Value("${filmorate.friends.index-enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        if (!enabled) {
+            log.info("FriendshipIndex: Индекс дружбы отключен, друзья читаются из БД.");
+            return;
+        }
+        AdjacencyLoader loader = new AdjacencyLoader();
+        jdbcTemplate.query(SQL_GET_FRIENDSHIPS, loader);
+        Map<Integer, int[]> loaded = loader.finish();
+        friends.clear();
+        friends.putAll(loaded);
+        this.loaded = true;
+        log.debug("FriendshipIndex: Индекс дружбы заполнен, пользователей с друзьями - {}, записей о дружбе - {}.", friends.size(), loader.rows);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Отсортированные ID друзей пользователя. Массив нельзя изменять
+    public synchronized int[] getFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    public synchronized int getFriendsCount(int userId) {
+        return getFriends(userId).length;
+    }
+
+    // Общие друзья двух пользователей: слияние двух отсортированных массивов за O(n + m)
+    public int[] getCommonFriends(int userId, int otherId) {
+        int[] first;
+        int[] second;
+        synchronized (this) {
+            first = getFriends(userId);
+            second = getFriends(otherId);
+        }
+        int[] common = new int[Math.min(first.length, second.length)];
+        return Arrays.copyOf(common, intersect(first, second, common));
+    }
+
+    // Количество общих друзей без создания списка
+    public int countCommonFriends(int userId, int otherId) {
+        int[] first;
+        int[] second;
+        synchronized (this) {
+            first = getFriends(userId);
+            second = getFriends(otherId);
+        }
+        return intersect(first, second, null);
+    }
+
+    // Друзья друзей пользователя по убыванию количества общих друзей (при равенстве - по возрастанию ID).
+    // Обход в ширину ограничен вторым уровнем и maxEdges просмотренными записями о дружбе, из кандидатов выбираются limit лучших
+    public List<MutualFriendsCount> getSuggestions(int userId, int limit, int maxEdges) {
+        int[] direct = getFriends(userId);
+        IntCounter counter = new IntCounter();
+        // Сам пользователь и его друзья исключаются из кандидатов без поиска на каждом шаге обхода
+        counter.exclude(userId);
+        for (int friendId : direct) {
+            counter.exclude(friendId);
+        }
+        int visited = 0;
+        traversal:
+        for (int friendId : direct) {
+            for (int candidateId : getFriends(friendId)) {
+                if (visited++ >= maxEdges) {
+                    log.debug("FriendshipIndex: Обход друзей друзей пользователя с ID {} остановлен после {} записей.", userId, maxEdges);
+                    break traversal;
+                }
+                counter.increment(candidateId);
+            }
+        }
+
+        // Куча из limit лучших кандидатов: ключ - количество общих друзей в старших битах и инвертированный ID в младших
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        counter.forEach((candidateId, count) -> {
+            top.offer(((long) count << 32) | (Integer.MAX_VALUE - candidateId));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        MutualFriendsCount[] result = new MutualFriendsCount[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            long key = top.poll();
+            result[i] = new MutualFriendsCount(userId, Integer.MAX_VALUE - (int) key, (int) (key >>> 32));
+        }
+        return List.of(result);
+    }
+
+    public synchronized void add(int userId, int friendId) {
+        if (!loaded) {
+            return;
+        }
+        int[] current = getFriends(userId);
+        int position = Arrays.binarySearch(current, friendId);
+        if (position >= 0) {
+            return;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = friendId;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        friends.put(userId, updated);
+    }
+
+    public synchronized void remove(int userId, int friendId) {
+        if (!loaded) {
+            return;
+        }
+        int[] current = getFriends(userId);
+        int position = Arrays.binarySearch(current, friendId);
+        if (position < 0) {
+            return;
+        }
+        if (current.length == 1) {
+            friends.remove(userId);
+            return;
+        }
+        int[] updated = new int[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, position);
+        System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+        friends.put(userId, updated);
+    }
+
+    // Удалить пользователя вместе со всеми записями о дружбе, где он друг
+    public synchronized void removeUser(int userId) {
+        friends.remove(userId);
+        for (Integer otherId : friends.keySet().toArray(new Integer[0])) {
+            remove(otherId, userId);
+        }
+    }
+
+    // Общие элементы двух отсортированных массивов записываются в common, если он передан
+    private static int intersect(int[] first, int[] second, int[] common) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                if (common != null) {
+                    common[size] = first[i];
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    // Счетчик по положительным ID без упаковки в Integer: открытая адресация с линейным пробированием, 0 - пустая ячейка.
+    // Исключенные ID хранятся с отрицательным счетчиком и не попадают в результат
+    private static class IntCounter {
+        private static final int EXCLUDED = Integer.MIN_VALUE / 2;
+
+        private int[] keys = new int[64];
+        private int[] counts = new int[64];
+        private int size;
+
+        private void exclude(int key) {
+            increment(key);
+            counts[find(keys, key)] = EXCLUDED;
+        }
+
+        private void increment(int key) {
+            int slot = find(keys, key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    grow();
+                    slot = find(keys, key);
+                }
+            }
+            counts[slot]++;
+        }
+
+        private void forEach(IntBiConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && counts[i] > 0) {
+                    consumer.accept(keys[i], counts[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int find(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    private interface IntBiConsumer {
+        void accept(int key, int value);
+    }
+
+    // Записи приходят отсортированными по user_id и friend_id: друзья пользователя копятся в растущем буфере,
+    // и массив каждого пользователя создается один раз при переходе к следующему пользователю
+    private static class AdjacencyLoader implements RowCallbackHandler {
+        private final Map<Integer, int[]> result = new HashMap<>();
+        private int[] buffer = new int[16];
+        private int size;
+        private int userId = -1;
+        private int rows;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int rowUserId = rs.getInt("user_id");
+            if (rowUserId != userId) {
+                publish();
+                userId = rowUserId;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = rs.getInt("friend_id");
+            rows++;
+        }
+
+        private Map<Integer, int[]> finish() {
+            publish();
+            return result;
+        }
+
+        private void publish() {
+            if (size > 0) {
+                result.put(userId, Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+        }
+    }
+}
@@ -30,7 +30,8 @@ public class GenreDbStorage {
     public List<Genre> getAll() {
         log.debug("GenreStorage: Получен запрос к хранилищу на получение всех жанров.");
         String sql = "SELECT * " +
-                "FROM genres ";
+                "FROM genres " +
+                "ORDER BY genre_id";
         return jdbcTemplate.query(sql, RowMapper::mapRowToGenre);
     }
 
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Множество сохраненных в таблице ID. ID выдаются подряд, поэтому битовая карта компактна (около 12 КБ на 100 000 ID).
+// Добавленный ID появляется в индексе сразу после вставки, а удаленный пропадает только после фиксации транзакции,
+// поэтому индекс никогда не пропускает сохраненный ID: отсутствие ID в индексе означает отсутствие записи в БД
+@Slf4j
+public abstract class IdPresenceIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sqlGetIds;
+    private final BitSet ids = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected IdPresenceIndex(JdbcTemplate jdbcTemplate, String sqlGetIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlGetIds = sqlGetIds;
+    }
+
+    @PostConstruct
+    public void load() {
+        BitSet loaded = new BitSet();
+        jdbcTemplate.query(sqlGetIds, rs -> {
+            loaded.set(rs.getInt(1));
+        });
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            ids.or(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("{}: Индекс ID заполнен, количество ID - {}.", getClass().getSimpleName(), loaded.cardinality());
+    }
+
+    public boolean contains(int id) {
+        if (id <= 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Добавить ID после вставки записи. При откате транзакции ID удаляется из индекса
+    public void add(int id) {
+        add(List.of(id));
+    }
+
+    public void add(List<Integer> added) {
+        set(added, true);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        set(added, false);
+                    }
+                }
+            });
+        }
+    }
+
+    // Удалить ID после удаления записи. В транзакции ID удаляется из индекса только после ее фиксации
+    public void remove(int id) {
+        TransactionCallbacks.afterCommit(() -> set(List.of(id), false));
+    }
+
+    private void set(List<Integer> changed, boolean present) {
+        lock.writeLock().lock();
+        try {
+            changed.forEach(id -> ids.set(id, present));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
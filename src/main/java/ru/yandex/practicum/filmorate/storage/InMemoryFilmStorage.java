@@ -1,7 +1,36 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 //@Component
 public class InMemoryFilmStorage extends AbstractStorage<Film> implements FilmStorage {
+
+    @Override
+    public List<Film> getAll(FilmProjection projection) {
+        return getAll();
+    }
+
+    @Override
+    public Film get(int id, FilmProjection projection) {
+        return get(id);
+    }
+
+    @Override
+    public List<Film> getPage(int after, int limit, FilmProjection projection) {
+        return getPage(after, limit);
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids, FilmProjection projection) {
+        return getByIds(ids);
+    }
+
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        getAll().forEach(consumer);
+    }
 }
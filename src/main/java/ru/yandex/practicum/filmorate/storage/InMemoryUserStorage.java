@@ -1,7 +1,27 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 //@Component
 public class InMemoryUserStorage extends AbstractStorage<User>implements UserStorage {
+
+    @Override
+    public List<UserCard> getAllCards() {
+        return toCards(getAll());
+    }
+
+    @Override
+    public List<UserCard> getCardsByIds(List<Integer> ids) {
+        return toCards(getByIds(ids));
+    }
+
+    private static List<UserCard> toCards(List<User> users) {
+        return users.stream()
+                .map(user -> UserCard.of(user, user.getFriends().size()))
+                .collect(Collectors.toList());
+    }
 }
@@ -3,88 +3,143 @@ package ru.yandex.practicum.filmorate.storage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeResult;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Repository("LikesStorage")
 @Slf4j
 public class LikesDbStorage {
 
-    private final Storage<Film> storage;
-    private final ResultDbEditor resultDbEditor;
-    private final JdbcTemplate jdbcTemplate;
-
+    private static final String SQL_ADD_LIKE = "INSERT INTO film_likes(film_id, user_id) " +
+            "SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+    private static final String SQL_DELETE_LIKE = "DELETE FROM film_likes " +
+            "WHERE film_id = ? AND user_id = ?";
+    private static final String SQL_COUNT_LIKES = "SELECT COUNT(*) " +
+            "FROM film_likes " +
+            "WHERE film_id = ?";
 
+    private final FilmStorage storage;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmCache filmCache;
+    private final PopularityIndex popularityIndex;
+    private final RateAccumulator rateAccumulator;
 
     @Autowired
-    public LikesDbStorage(JdbcTemplate jdbcTemplate, @Qualifier("FilmDbStorage") Storage<Film> storage, ResultDbEditor resultDbEditor) {
+    public LikesDbStorage(JdbcTemplate jdbcTemplate, @Qualifier("FilmDbStorage") FilmStorage storage, FilmCache filmCache,
+                          PopularityIndex popularityIndex, RateAccumulator rateAccumulator) {
         this.storage = storage;
         this.jdbcTemplate = jdbcTemplate;
-        this.resultDbEditor = resultDbEditor;
+        this.filmCache = filmCache;
+        this.popularityIndex = popularityIndex;
+        this.rateAccumulator = rateAccumulator;
     }
 
-    public Film likeFilm(int filmId, int userId) {
-        // Добавляем запись о лайке
+    // Повторный лайк ничего не меняет. Запись о лайке добавляется сразу, rate изменяется через RateAccumulator
+    @Transactional
+    public LikeResult likeFilm(int filmId, int userId) {
         log.debug("LikesStorage: Получен запрос к хранилищу от пользователя с ID {} на лайк фильма с ID {}.", userId, filmId);
-        String sql = "INSERT INTO film_likes(film_id, user_id) " +
-                "VALUES (?,?)";
-        jdbcTemplate.update(sql,
-                filmId, userId);
-        log.debug("LikesStorage: Запись о лайке пользователя с ID {} фильму с ID {} успешно добавлена в хранилище.", userId, filmId);
-
-        // Обновляем параметр rate
-        updateRate(filmId, true);
-        log.trace("LikesStorage: Поле rate фильма с ID {} успешно обновлено в хранилище.", filmId);
+        boolean added;
+        try {
+            added = jdbcTemplate.update(SQL_ADD_LIKE, filmId, userId, filmId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Тот же лайк одновременно добавлен другим запросом
+            added = false;
+        }
+        log.debug("LikesStorage: Запись о лайке пользователя с ID {} фильму с ID {} добавлена в хранилище - {}.", userId, filmId, added);
 
-        // Получаем результат
-        return storage.get(filmId);
+        if (added) {
+            updateRate(filmId, 1);
+        }
+        return getLikeResult(filmId, true);
     }
 
-    public Film dislikeFilm(int filmId, int userId) {
+    // Удаление отсутствующего лайка ничего не меняет. Если лайк не удален, возвращается null:
+    // по одному запросу нельзя отличить отсутствие лайка от отсутствия фильма или пользователя
+    @Transactional
+    public LikeResult dislikeFilm(int filmId, int userId) {
         log.debug("LikesStorage: Получен запрос к хранилищу от пользователя с ID {} на удаление лайка фильма с ID {}.", userId, filmId);
+        boolean deleted = jdbcTemplate.update(SQL_DELETE_LIKE, filmId, userId) > 0;
+        log.debug("LikesStorage: Запись о лайке пользователя с ID {} фильму с ID {} удалена из хранилища - {}.", userId, filmId, deleted);
+
+        if (!deleted) {
+            return null;
+        }
+        updateRate(filmId, -1);
+        return getLikeResult(filmId, false);
+    }
 
-        // Удаляем запись о лайке
-        String sqlDelete = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sqlDelete, filmId, userId);
-        log.debug("LikesStorage: Запись о лайке пользователя с ID {} фильму с ID {} успешно удалена из хранилища.", userId, filmId);
+    public LikeResult getLikeResult(int filmId, boolean liked) {
+        return new LikeResult(filmId, countLikes(filmId), liked);
+    }
 
-        // Обновляем параметр rate
-        updateRate(filmId, false);
-        log.trace("LikesStorage: Поле rate фильма с ID {} успешно обновлено в хранилище.", filmId);
+    // Добавить лайки одним пакетным запросом, rate изменяется только для действительно добавленных лайков
+    @Transactional
+    public void likeFilms(List<FilmLike> likes) {
+        log.debug("LikesStorage: Получен запрос к хранилищу на пакетное добавление лайков в количестве {}.", likes.size());
+        int[] counts = jdbcTemplate.batchUpdate(SQL_ADD_LIKE, likes.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()})
+                .collect(Collectors.toList()));
+        updateRates(likes, counts, 1);
+    }
 
-        // Получаем результат
+    // Удалить лайки одним пакетным запросом, rate изменяется только для действительно удаленных лайков
+    @Transactional
+    public void dislikeFilms(List<FilmLike> likes) {
+        log.debug("LikesStorage: Получен запрос к хранилищу на пакетное удаление лайков в количестве {}.", likes.size());
+        int[] counts = jdbcTemplate.batchUpdate(SQL_DELETE_LIKE, likes.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId()})
+                .collect(Collectors.toList()));
+        updateRates(likes, counts, -1);
+    }
+
+    public Film getFilm(int filmId) {
         return storage.get(filmId);
     }
 
-    public List<Film> getMostPopularFilms(int count) {
-        log.debug("FilmDbStorage: Получен запрос к хранилищу на получение списка самых популярных фильмов размером {}.", count);
-        String sql = "SELECT * " +
-                "FROM films as f " +
-                "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-                "ORDER BY rate DESC " +
-                "LIMIT ?";
-        List<Film> result = jdbcTemplate.query(sql, RowMapper::mapRowToFilm, count);
-        log.debug("FilmDbStorage: Получен список самых популярных фильмов длиной {} при запросе списка длиной {}.", result.size(), count);
-
-        return resultDbEditor.setMpaLikesGenre(result);
+    // Пересчитать rate всех фильмов по записям film_likes
+    public void recomputeRates() {
+        rateAccumulator.recompute();
+    }
+
+    // ID самых популярных фильмов берутся из индекса популярности, сами фильмы - из кэша или одним пакетным запросом
+    public List<Film> getMostPopularFilms(int count, FilmProjection projection) {
+        log.debug("LikesStorage: Получен запрос к хранилищу на получение списка самых популярных фильмов размером {}.", count);
+        List<Film> result = storage.getByIds(popularityIndex.getTop(count), projection);
+        log.debug("LikesStorage: Получен список самых популярных фильмов длиной {} при запросе списка длиной {}.", result.size(), count);
+
+        return result;
     }
 
-    private void updateRate(int filmId, boolean isIncrease) {
-        log.debug("LikesStorage: Получен запрос к хранилищу на обновление поля rate фильма с ID {} и параметром isIncrease = {}.", filmId, isIncrease);
-        String sql;
-        if (isIncrease) {
-            sql = "UPDATE films " +
-                    "SET rate = rate + 1 "
-                    + "WHERE film_id = ?";
-        } else {
-            sql = "UPDATE films " +
-                    "SET rate = rate - 1 "
-                    + "WHERE film_id = ?";
+    // rate в БД обновляется пакетно при записи RateAccumulator, индекс популярности - сразу после фиксации транзакции,
+    // чтобы изменение отмененного лайка не попало ни в БД, ни в индекс
+    private void updateRate(int filmId, int delta) {
+        log.debug("LikesStorage: Получен запрос к хранилищу на изменение поля rate фильма с ID {} на {}.", filmId, delta);
+        TransactionCallbacks.afterCommit(() -> {
+            rateAccumulator.add(filmId, delta);
+            filmCache.invalidate(filmId);
+            popularityIndex.addRate(filmId, delta);
+        });
+    }
+
+    private void updateRates(List<FilmLike> likes, int[] counts, int delta) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                updateRate(likes.get(i).getFilmId(), delta);
+            }
         }
+    }
 
-        jdbcTemplate.update(sql, filmId);
+    private int countLikes(int filmId) {
+        return jdbcTemplate.queryForObject(SQL_COUNT_LIKES, Integer.class, filmId);
     }
 }
@@ -31,7 +31,8 @@ public class MpaDbStorage {
     public List<MPA> getAll() {
         log.debug("MpaStorage: Получен запрос к хранилищу на получение всех рейтингов.");
         String sql = "SELECT * " +
-                "FROM mpa ";
+                "FROM mpa " +
+                "ORDER BY mpa_id";
         return jdbcTemplate.query(sql, RowMapper::mapRowToMpa);
     }
 
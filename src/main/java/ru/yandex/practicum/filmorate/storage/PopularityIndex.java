@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Упорядоченный по убыванию rate индекс фильмов. Заполняется из БД при старте и обновляется при каждом изменении rate
+@Component
+@Slf4j
+public class PopularityIndex {
+
+    private static final String SQL_GET_RATES = "SELECT film_id, rate " +
+            "FROM films";
+    private static final Comparator<Entry> BY_RATE_DESC = Comparator.comparingInt((Entry entry) -> entry.rate).reversed()
+            .thenComparingInt(entry -> entry.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(BY_RATE_DESC);
+
+    @Autowired
+    public PopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        entries.clear();
+        ranking.clear();
+        jdbcTemplate.query(SQL_GET_RATES, rs -> {
+            put(new Entry(rs.getInt("film_id"), rs.getInt("rate")));
+        });
+        log.debug("PopularityIndex: Индекс популярности заполнен фильмами в количестве {}.", entries.size());
+    }
+
+    // Установить rate фильма (при добавлении или обновлении фильма)
+    public synchronized void setRate(int filmId, int rate) {
+        remove(filmId);
+        put(new Entry(filmId, rate));
+    }
+
+    // Изменить rate фильма на delta (при лайке или удалении лайка)
+    public synchronized void addRate(int filmId, int delta) {
+        Entry entry = entries.get(filmId);
+        if (entry == null) {
+            log.warn("PopularityIndex: Фильм с ID {} отсутствует в индексе популярности.", filmId);
+            return;
+        }
+        ranking.remove(entry);
+        put(new Entry(filmId, entry.rate + delta));
+    }
+
+    public synchronized void remove(int filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry != null) {
+            ranking.remove(entry);
+        }
+    }
+
+    // Получить ID count самых популярных фильмов по убыванию rate
+    public synchronized List<Integer> getTop(int count) {
+        List<Integer> result = new ArrayList<>(Math.min(count, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().filmId);
+        }
+        return result;
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.filmId, entry);
+        ranking.add(entry);
+    }
+
+    private static class Entry {
+        private final int filmId;
+        private final int rate;
+
+        private Entry(int filmId, int rate) {
+            this.filmId = filmId;
+            this.rate = rate;
+        }
+    }
+}
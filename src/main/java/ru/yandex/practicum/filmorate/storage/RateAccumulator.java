@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Изменения rate от лайков копятся в памяти и периодически записываются в films.rate одним пакетным запросом.
+// Записи film_likes пишутся сразу, поэтому после аварийного завершения rate можно пересчитать по ним
+@Component
+@Slf4j
+public class RateAccumulator {
+
+    private static final String SQL_ADD_RATE = "UPDATE films " +
+            "SET rate = rate + ? " +
+            "WHERE film_id = ?";
+    private static final String SQL_RECOMPUTE_RATES = "UPDATE films AS f " +
+            "SET rate = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularityIndex popularityIndex;
+    private final FilmCache filmCache;
+    private final boolean recomputeOnStartup;
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    // Запись изменений в БД и их вычитание из счетчиков выполняются под блокировкой записи,
+    // чтение строк фильмов вместе с applyPending - под блокировкой чтения
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public RateAccumulator(JdbcTemplate jdbcTemplate, PopularityIndex popularityIndex, FilmCache filmCache,
+                           @Value("${filmorate.likes.recompute-on-startup:false}") boolean recomputeOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.filmCache = filmCache;
+        this.recomputeOnStartup = recomputeOnStartup;
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (recomputeOnStartup) {
+            recompute();
+        }
+    }
+
+    // Добавить изменение rate фильма (без обращения к БД). Изменение делается под блокировкой записи карты,
+    // поэтому не может попасть в счетчик, уже удаленный reset
+    public void add(int filmId, int delta) {
+        pending.compute(filmId, (id, adder) -> {
+            LongAdder result = adder == null ? new LongAdder() : adder;
+            result.add(delta);
+            return result;
+        });
+    }
+
+    // Еще не записанное в БД изменение rate фильма
+    public int getPending(int filmId) {
+        LongAdder adder = pending.get(filmId);
+        return adder == null ? 0 : adder.intValue();
+    }
+
+    // Добавить к rate прочитанного из БД фильма еще не записанное изменение
+    public Film applyPending(Film film) {
+        int delta = getPending(film.getId());
+        if (delta != 0) {
+            film.setRate(film.getRate() + delta);
+        }
+        return film;
+    }
+
+    // Выполнить чтение фильмов из БД, с которым запись изменений не может чередоваться:
+    // иначе фильм, прочитанный между записью в БД и вычитанием из счетчика, получил бы изменение дважды
+    public <T> T read(Supplier<T> query) {
+        flushLock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    // Сбросить изменения фильма перед удалением фильма
+    public synchronized void reset(int filmId) {
+        pending.remove(filmId);
+    }
+
+    // Записать накопленные изменения в БД. Изменения вычитаются из счетчиков только после успешной записи,
+    // поэтому лайки, поставленные во время записи, не теряются. Счетчики, дошедшие до нуля, удаляются
+    @Scheduled(fixedDelayString = "${filmorate.likes.flush-interval:PT1S}")
+    @PreDestroy
+    public synchronized void flush() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        List<Object[]> args = new ArrayList<>();
+        pending.forEach((filmId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                deltas.put(filmId, delta);
+                args.add(new Object[]{delta, filmId});
+            } else {
+                pending.computeIfPresent(filmId, (id, current) -> current.sum() == 0 ? null : current);
+            }
+        });
+        if (args.isEmpty()) {
+            return;
+        }
+
+        flushLock.writeLock().lock();
+        try {
+            jdbcTemplate.batchUpdate(SQL_ADD_RATE, args);
+            // Вычитание делается под блокировкой записи карты, поэтому не пересекается с add и reset
+            deltas.forEach((filmId, delta) -> pending.computeIfPresent(filmId, (id, adder) -> {
+                adder.add(-delta);
+                return adder.sum() == 0 ? null : adder;
+            }));
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        log.debug("RateAccumulator: В БД записаны изменения rate фильмов в количестве {}.", args.size());
+    }
+
+    // Пересчитать rate всех фильмов по количеству записей film_likes (восстановление после аварийного завершения)
+    public synchronized void recompute() {
+        log.info("RateAccumulator: Пересчет rate всех фильмов по количеству лайков.");
+        int updated;
+        flushLock.writeLock().lock();
+        try {
+            pending.clear();
+            updated = jdbcTemplate.update(SQL_RECOMPUTE_RATES);
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        popularityIndex.load();
+        filmCache.clear();
+        log.info("RateAccumulator: Пересчитан rate фильмов в количестве {}.", updated);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Справочники жанров и рейтингов, загружаемые из БД при старте приложения и обновляемые по запросу
+@Component
+@Slf4j
+public class ReferenceDataRegistry {
+
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+    private volatile Map<Integer, Genre> genres = Collections.emptyMap();
+    private volatile Map<Integer, MPA> mpa = Collections.emptyMap();
+
+    @Autowired
+    public ReferenceDataRegistry(@Qualifier("GenreStorage") GenreDbStorage genreStorage,
+                                 @Qualifier("MpaStorage") MpaDbStorage mpaStorage) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        refreshGenres();
+        refreshMpa();
+    }
+
+    public void refreshGenres() {
+        Map<Integer, Genre> loaded = new LinkedHashMap<>();
+        genreStorage.getAll().forEach(genre -> loaded.put(genre.getId(), genre));
+        genres = Collections.unmodifiableMap(loaded);
+        log.debug("ReferenceDataRegistry: Загружен справочник жанров размером {}.", loaded.size());
+    }
+
+    public void refreshMpa() {
+        Map<Integer, MPA> loaded = new LinkedHashMap<>();
+        mpaStorage.getAll().forEach(rating -> loaded.put(rating.getId(), rating));
+        mpa = Collections.unmodifiableMap(loaded);
+        log.debug("ReferenceDataRegistry: Загружен справочник рейтингов размером {}.", loaded.size());
+    }
+
+    public List<Genre> getAllGenres() {
+        return new ArrayList<>(genres.values());
+    }
+
+    // Получить жанр по ID (null - жанра нет в справочнике)
+    public Genre getGenre(int id) {
+        return genres.get(id);
+    }
+
+    public boolean containsGenre(int id) {
+        return genres.containsKey(id);
+    }
+
+    public List<MPA> getAllMpa() {
+        return new ArrayList<>(mpa.values());
+    }
+
+    // Получить рейтинг по ID (null - рейтинга нет в справочнике)
+    public MPA getMpa(int id) {
+        return mpa.get(id);
+    }
+
+    public boolean containsMpa(int id) {
+        return mpa.containsKey(id);
+    }
+}
@@ -2,73 +2,204 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository("ResultDBEditor")
 public class ResultDbEditor {
-    private final JdbcTemplate jdbcTemplate;
+
+    // Максимальное количество ID в одном условии IN (...)
+    private static final int BATCH_SIZE = 1000;
+    private static final String SQL_GET_LIKES_BY_FILM_IDS = "SELECT film_id, user_id " +
+            "FROM film_likes " +
+            "WHERE film_id IN (:ids)";
+    private static final String SQL_GET_GENRES_BY_FILM_IDS = "SELECT film_id, genre_id " +
+            "FROM film_genre " +
+            "WHERE film_id IN (:ids)";
+    private static final String SQL_COUNT_LIKES_BY_FILM_IDS = "SELECT film_id, COUNT(*) AS count " +
+            "FROM film_likes " +
+            "WHERE film_id IN (:ids) " +
+            "GROUP BY film_id";
+    private static final String SQL_GET_FRIENDS_BY_USER_IDS = "SELECT user_id, friend_id " +
+            "FROM user_friends " +
+            "WHERE user_id IN (:ids)";
+    private static final String SQL_GET_USERS_BY_FRIEND_IDS = "SELECT DISTINCT user_id " +
+            "FROM user_friends " +
+            "WHERE friend_id IN (:ids)";
+    private static final String SQL_COUNT_FRIENDS_BY_USER_IDS = "SELECT user_id, COUNT(*) AS count " +
+            "FROM user_friends " +
+            "WHERE user_id IN (:ids) " +
+            "GROUP BY user_id";
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final FriendshipIndex friendshipIndex;
 
     @Autowired
-    public ResultDbEditor(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public ResultDbEditor(NamedParameterJdbcTemplate namedParameterJdbcTemplate, ReferenceDataRegistry referenceDataRegistry,
+                          FriendshipIndex friendshipIndex) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.friendshipIndex = friendshipIndex;
+    }
+
+    // Заполнить лайки и жанры списка фильмов фиксированным количеством запросов (рейтинг уже получен через JOIN)
+    public List<Film> setLikesGenre(List<Film> films) {
+        return setLikesGenre(films, FilmProjection.FULL);
     }
 
-    private void setMpaName(Film film) {
-        log.trace("FilmDbStorage: Получен запрос на установление значения поля name у рейтинга фильма с ID - {}.", film.getId());
+    // Запросы выполняются только для полей, запрошенных в projection
+    public List<Film> setLikesGenre(List<Film> films, FilmProjection projection) {
+        log.debug("ResultDbEditor: Получен запрос на установление значений полей likes и genres у списка фильмов размером {}.", films.size());
+        if (films.isEmpty() || !(projection.includesLikes() || projection.includesGenres() || projection.includesLikesCountOnly())) {
+            return films;
+        }
+
+        Map<Integer, Film> filmsById = new LinkedHashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+        List<Integer> ids = List.copyOf(filmsById.keySet());
+        if (projection.includesLikesCountOnly()) {
+            // Фильмы без лайков не попадают в результат запроса с группировкой
+            filmsById.values().forEach(film -> film.setLikesCount(0));
+        }
+
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())));
+
+            if (projection.includesLikes()) {
+                namedParameterJdbcTemplate.query(SQL_GET_LIKES_BY_FILM_IDS, params, (RowCallbackHandler) rs ->
+                        filmsById.get(rs.getInt("film_id")).getLikes().add(RowMapper.mapRowToLikes(rs, rs.getRow())));
+                log.trace("ResultDbEditor: Установлены значения поля likes у полученных фильмов.");
+            }
 
-        String sql = "SELECT rating " +
-                "FROM mpa " +
-                "WHERE mpa_id = ?";
-        String rating = jdbcTemplate.queryForObject(sql, RowMapper::mapRowToRating, film.getMpa().getId());
-        film.getMpa().setName(rating);
+            if (projection.includesLikesCountOnly()) {
+                namedParameterJdbcTemplate.query(SQL_COUNT_LIKES_BY_FILM_IDS, params, (RowCallbackHandler) rs ->
+                        filmsById.get(rs.getInt("film_id")).setLikesCount(RowMapper.mapRowToCount(rs, rs.getRow())));
+                log.trace("ResultDbEditor: Установлены значения поля likesCount у полученных фильмов.");
+            }
+
+            if (projection.includesGenres()) {
+                namedParameterJdbcTemplate.query(SQL_GET_GENRES_BY_FILM_IDS, params, (RowCallbackHandler) rs ->
+                        filmsById.get(rs.getInt("film_id")).getGenres().add(mapRowToGenre(rs, rs.getRow())));
+                log.trace("ResultDbEditor: Установлены значения поля genres у полученных фильмов.");
+            }
+        }
+
+        return films;
     }
 
-    public void setLikes(Film film) {
-        log.debug("FilmDbStorage: Получен запрос на установление значений поля likes у фильма с ID - {}.", film.getId());
-        String sql = "SELECT user_id " +
-                "FROM film_likes " +
-                "WHERE film_id = ?";
-        Set<Integer> likes = new HashSet<>(jdbcTemplate.query(sql, RowMapper::mapRowToLikes, film.getId()));
-        film.setLikes(likes);
+    // Друзья берутся из индекса дружбы без запросов к БД, а при отключенном индексе - одним запросом
+    public void setFriends(User user) {
+        setFriends(List.of(user));
     }
 
-    public void setGenre(Film film) {
-        log.debug("FilmDbStorage: Получен запрос на установление значений поля name у жанров фильма с ID - {}.", film.getId());
-        String sql = "SELECT fg.genre_id, g.genre " +
-                "FROM film_genre AS fg " +
-                "LEFT JOIN genres AS g ON fg.genre_id = g.genre_id " +
-                "WHERE film_id = ?";
-        Set<Genre> genre = new HashSet<>(jdbcTemplate.query(sql, RowMapper::mapRowToGenre, film.getId()));
-        film.setGenre(genre);
+    public List<User> setFriends(List<User> users) {
+        log.debug("ResultDbEditor: Получен запрос на обновление поля friends у списка пользователей размером {}.", users.size());
+        if (friendshipIndex.isLoaded()) {
+            for (User user : users) {
+                for (int friendId : friendshipIndex.getFriends(user.getId())) {
+                    user.getFriends().add(friendId);
+                }
+            }
+            return users;
+        }
+
+        Map<Integer, User> usersById = new LinkedHashMap<>();
+        users.forEach(user -> usersById.put(user.getId(), user));
+        List<Integer> ids = List.copyOf(usersById.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())));
+            namedParameterJdbcTemplate.query(SQL_GET_FRIENDS_BY_USER_IDS, params, (RowCallbackHandler) rs ->
+                    usersById.get(rs.getInt("user_id")).getFriends().add(RowMapper.mapRowToFriendId(rs, rs.getRow())));
+        }
+        return users;
     }
 
-    public List<Film> setMpaLikesGenre(List<Film> films) {
-        films.forEach(this::setMpaName);
-        log.trace("FilmDbStorage: Установлены значения поля name у рейтингов полученных фильмов.");
-        films.forEach(this::setLikes);
-        log.trace("FilmDbStorage: Установлены значения поля likes у полученных фильмов.");
-        films.forEach(this::setGenre);
-        log.trace("FilmDbStorage: Установлены значения поля name у жанров полученных фильмов.");
+    // ID пользователей, у которых в друзьях есть хотя бы один из friendIds (запрос по индексу внешнего ключа friend_id)
+    public Set<Integer> getUsersByFriendIds(Collection<Integer> friendIds) {
+        log.debug("ResultDbEditor: Получен запрос на получение пользователей, у которых в друзьях есть пользователи в количестве {}.", friendIds.size());
+        Set<Integer> result = new HashSet<>();
+        List<Integer> ids = List.copyOf(friendIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())));
+            namedParameterJdbcTemplate.query(SQL_GET_USERS_BY_FRIEND_IDS, params, (RowCallbackHandler) rs ->
+                    result.add(rs.getInt("user_id")));
+        }
+        return result;
+    }
 
-        return films;
+    // Карточки пользователей без ID друзей: количество друзей берется из индекса дружбы,
+    // а при отключенном индексе - одним запросом с группировкой на пачку пользователей
+    public List<UserCard> toCards(List<User> users) {
+        log.debug("ResultDbEditor: Получен запрос на получение карточек для списка пользователей размером {}.", users.size());
+        if (friendshipIndex.isLoaded()) {
+            return users.stream()
+                    .map(user -> UserCard.of(user, friendshipIndex.getFriendsCount(user.getId())))
+                    .collect(Collectors.toList());
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        List<Integer> ids = users.stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())));
+            namedParameterJdbcTemplate.query(SQL_COUNT_FRIENDS_BY_USER_IDS, params, (RowCallbackHandler) rs ->
+                    counts.put(rs.getInt("user_id"), rs.getInt("count")));
+        }
+        return users.stream()
+                .map(user -> UserCard.of(user, counts.getOrDefault(user.getId(), 0)))
+                .collect(Collectors.toList());
     }
 
-    public void setFriends(User user) {
-        int id = user.getId();
-        log.debug("UserDbStorage: Получен запрос на обновление поля friends пользователя c ID - {}.", id);
-        String sql = "SELECT friend_id " +
-                "FROM user_friends " +
-                "WHERE user_id = ?";
-        Set<Integer> friends = new HashSet<>(jdbcTemplate.query(sql, RowMapper::mapRowToFriendId, id));
-        user.setFriends(friends);
+    // Собрать фильм для ответа из переданных данных без повторного чтения из БД: названия рейтинга и жанров берутся из справочника
+    public Film assembleFilm(Film data, Set<Integer> likes) {
+        Film film = new Film(data.getId(), data.getName(), data.getDescription(), data.getReleaseDate(), data.getDuration(),
+                data.getRate(), getMpa(data.getMpa().getId()));
+        film.setLikes(likes);
+        data.getGenres().forEach(genre -> film.getGenres().add(getGenre(genre.getId())));
+        return film;
+    }
+
+    // Название жанра берется из справочника, поэтому таблица genres в запросах не участвует
+    public Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
+        return getGenre(rs.getInt("genre_id"));
+    }
+
+    private Genre getGenre(int id) {
+        Genre genre = referenceDataRegistry.getGenre(id);
+        if (genre == null) {
+            log.warn("ResultDbEditor: Жанр с ID {} отсутствует в справочнике жанров.", id);
+            return new Genre(id, null);
+        }
+        return genre;
+    }
+
+    private MPA getMpa(int id) {
+        MPA mpa = referenceDataRegistry.getMpa(id);
+        if (mpa == null) {
+            log.warn("ResultDbEditor: Рейтинг с ID {} отсутствует в справочнике рейтингов.", id);
+            return new MPA(id, null);
+        }
+        return mpa;
     }
 }
@@ -54,11 +54,6 @@ public class RowMapper {
         return rs.getInt("film_id");
     }
 
-    public static String mapRowToRating(ResultSet rs, int rowNum) throws SQLException {
-        log.debug("RowMapper: Получен запрос от хранилища на преобразование данных в количество лайков (rate).");
-        return rs.getString("rating");
-    }
-
     public static MPA mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
         log.debug("RowMapper: Получен запрос от хранилища на преобразование данных в экземпляр рейтинга (MPA).");
         int id = rs.getInt("mpa_id");
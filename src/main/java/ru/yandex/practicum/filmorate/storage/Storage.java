@@ -8,12 +8,21 @@ public interface Storage<T extends StorageData> {
 
     List<T> getAll();
 
+    List<T> getPage(int after, int limit);
+
     T add(T data);
 
+    // Добавить данные одной транзакцией, возвращает ID добавленных данных в порядке списка
+    List<Integer> addAll(List<T> data);
+
+    // Методы update, get и delete возвращают null, если данных с таким ID нет
     T update(T data);
 
     T get(int id);
 
+    // Получить данные по списку ID в порядке списка (отсутствующие ID пропускаются)
+    List<T> getByIds(List<Integer> ids);
+
     T delete (int id);
 
     boolean validateDataExists(int id);
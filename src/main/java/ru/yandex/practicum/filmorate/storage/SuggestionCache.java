@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.MutualFriendsCount;
+
+import java.time.Duration;
+import java.util.List;
+
+// Кэш рекомендаций друзей по ID пользователя. При изменении дружбы инвалидируются записи пользователей,
+// у которых изменились друзья друзей
+@Component
+public class SuggestionCache extends EntityCache<List<MutualFriendsCount>> {
+
+    @Autowired
+    public SuggestionCache(@Value("${filmorate.cache.suggestions.max-size:10000}") int maxSize,
+                           @Value("${filmorate.cache.suggestions.ttl:PT1M}") Duration ttl) {
+        super(maxSize, ttl);
+    }
+}
@@ -2,12 +2,29 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Repository("UserDbStorage")
 @Slf4j
@@ -16,71 +33,179 @@ public class UserDbStorage implements UserStorage {
     private static final String SQL_GET_BY_ID = "SELECT user_id, email, user_name, login, birthday " +
             "FROM users " +
             "WHERE user_id = ?";
-    private static final String SQL_VALIDATE_EXISTS = "SELECT COUNT(*) AS count " +
+    private static final String SQL_GET_ALL = "SELECT user_id, email, user_name, login, birthday " +
             "FROM users " +
-            "WHERE user_id = ?";
+            "ORDER BY user_id";
+    private static final String SQL_GET_PAGE = "SELECT user_id, email, user_name, login, birthday " +
+            "FROM users " +
+            "WHERE user_id > ? " +
+            "ORDER BY user_id " +
+            "LIMIT ?";
+    private static final String SQL_ADD = "INSERT INTO users (email, login, user_name, birthday) " +
+            "VALUES (?, ?, ?, ?)";
+    private static final String SQL_GET_BY_IDS = "SELECT user_id, email, user_name, login, birthday " +
+            "FROM users " +
+            "WHERE user_id IN (:ids)";
+    private static final String SQL_DELETE_FRIENDSHIPS = "DELETE FROM user_friends " +
+            "WHERE user_id = ? OR friend_id = ?";
+    private static final String SQL_DELETE_LIKES_RETURNING_FILMS = "SELECT film_id " +
+            "FROM OLD TABLE (DELETE FROM film_likes WHERE user_id = ?)";
+    private static final String SQL_DECREMENT_RATES = "UPDATE films SET rate = rate - 1 " +
+            "WHERE film_id IN (:ids)";
+    private static final String SQL_DELETE = "DELETE FROM users WHERE user_id = ?";
     private final JdbcTemplate jdbcTemplate;
-    private final LikesDbStorage likesStorage;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final ResultDbEditor resultDbEditor;
+    private final FilmCache filmCache;
+    private final PopularityIndex popularityIndex;
+    private final FriendshipIndex friendshipIndex;
+    private final SuggestionCache suggestionCache;
+    private final UserIdIndex userIds;
+    private final SimpleJdbcInsert userInsert;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate, LikesDbStorage likesStorage, ResultDbEditor resultDbEditor) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, ResultDbEditor resultDbEditor,
+                         FilmCache filmCache, PopularityIndex popularityIndex, FriendshipIndex friendshipIndex, SuggestionCache suggestionCache, UserIdIndex userIds) {
         this.jdbcTemplate = jdbcTemplate;
-        this.likesStorage = likesStorage;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
         this.resultDbEditor = resultDbEditor;
+        this.filmCache = filmCache;
+        this.popularityIndex = popularityIndex;
+        this.friendshipIndex = friendshipIndex;
+        this.suggestionCache = suggestionCache;
+        this.userIds = userIds;
+        // Метаданные таблицы читаются один раз при первой вставке, дальше используется скомпилированный запрос
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("email", "login", "user_name", "birthday")
+                .usingGeneratedKeyColumns("user_id");
     }
 
     @Override
     public List<User> getAll() {
         log.debug("UserDbStorage: Получен запрос к сервису на получение всех пользователей из базы пользователей.");
-
-        String sql = "SELECT * " +
-                "FROM users";
-        List<User> result = jdbcTemplate.query(sql, RowMapper::mapRowToUser);
+        List<User> result = jdbcTemplate.query(SQL_GET_ALL, RowMapper::mapRowToUser);
         log.debug("UserDbStorage: Получен список всех пользователей из базы пользователей размером {}.", result.size());
 
-        result.forEach(resultDbEditor::setFriends);
+        resultDbEditor.setFriends(result);
         log.trace("UserDbStorage: Обновлены поля friends полученного списка всех пользователей.");
 
         return result;
     }
 
+    // Друзья пользователей не загружаются, поэтому запрос к БД один
+    @Override
+    public List<UserCard> getAllCards() {
+        log.debug("UserDbStorage: Получен запрос к хранилищу на получение карточек всех пользователей.");
+        List<UserCard> result = resultDbEditor.toCards(jdbcTemplate.query(SQL_GET_ALL, RowMapper::mapRowToUser));
+        log.debug("UserDbStorage: Получены карточки всех пользователей в количестве {}.", result.size());
+        return result;
+    }
+
+    @Override
+    public List<User> getPage(int after, int limit) {
+        log.debug("UserDbStorage: Получен запрос к хранилищу на получение страницы пользователей с ID больше {} размером {}.", after, limit);
+        List<User> result = jdbcTemplate.query(SQL_GET_PAGE, RowMapper::mapRowToUser, after, limit);
+        log.debug("UserDbStorage: Получена страница пользователей размером {}.", result.size());
+
+        resultDbEditor.setFriends(result);
+        log.trace("UserDbStorage: Обновлены поля friends полученной страницы пользователей.");
+
+        return result;
+    }
+
     @Override
     public User add(User data) {
         log.debug("UserDbStorage: Получен запрос к хранилищу на добавление пользователя с логином {}.", data.getLogin());
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
-        int id = simpleJdbcInsert.executeAndReturnKey(data.toMap()).intValue();
+        int id = userInsert.executeAndReturnKey(data.toMap()).intValue();
+        userIds.add(id);
         log.debug("UserDbStorage: В хранилище добавлен пользователь с ID - {}.", id);
-        data.setId(id);
-        return get(id);
+
+        // У нового пользователя нет друзей, поэтому ответ собирается из переданных данных
+        return new User(id, data.getEmail(), data.getLogin(), data.getName(), data.getBirthday());
+    }
+
+    // Пользователи добавляются одним пакетным запросом, ID берутся из сгенерированных ключей
+    @Override
+    @Transactional
+    public List<Integer> addAll(List<User> data) {
+        log.debug("UserDbStorage: Получен запрос к хранилищу на пакетное добавление пользователей в количестве {}.", data.size());
+        if (data.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SQL_ADD, Statement.RETURN_GENERATED_KEYS)) {
+                for (User user : data) {
+                    statement.setString(1, user.getEmail());
+                    statement.setString(2, user.getLogin());
+                    statement.setString(3, user.getName());
+                    statement.setObject(4, user.getBirthday());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Integer> generated = new ArrayList<>(data.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getInt(1));
+                    }
+                }
+                return generated;
+            }
+        });
+        if (ids.size() != data.size()) {
+            throw new DataRetrievalFailureException(String.format(
+                    "UserDbStorage: Получено %s сгенерированных ID для %s добавленных пользователей.", ids.size(), data.size()));
+        }
+        userIds.add(ids);
+        log.debug("UserDbStorage: В хранилище добавлено пользователей - {}.", ids.size());
+        return ids;
     }
 
     @Override
     public User update(User data) {
         int id = data.getId();
         log.debug("UserDbStorage: Получен запрос к хранилищу на обновление пользователя с ID - {}.", id);
+        if (!userIds.contains(id)) {
+            log.debug("UserDbStorage: Пользователь с ID - {} для обновления не найден.", id);
+            return null;
+        }
 
         String sql = "UPDATE users SET " +
                 "email = ?, user_name = ?, login = ?, birthday = ? "
                 + "WHERE user_id = ?";
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 data.getEmail(),
                 data.getName(),
                 data.getLogin(),
                 data.getBirthday(),
                 data.getId());
+        if (updated == 0) {
+            log.debug("UserDbStorage: Пользователь с ID - {} для обновления не найден.", id);
+            return null;
+        }
         log.debug("UserDbStorage: В хранилище обновлен пользователь с ID - {}.", id);
 
-        return get(id);
+        // Из БД читаются только друзья, остальные поля берутся из переданных данных
+        User result = new User(id, data.getEmail(), data.getLogin(), data.getName(), data.getBirthday());
+        resultDbEditor.setFriends(result);
+        return result;
     }
 
     @Override
     public User get(int id) {
         log.debug("UserDbStorage: Получен запрос к хранилищу на получение пользователя с ID - {}.", id);
-        User result = jdbcTemplate.queryForObject(SQL_GET_BY_ID, RowMapper::mapRowToUser, id);
+        if (!userIds.contains(id)) {
+            log.debug("UserDbStorage: Пользователь с ID - {} не найден.", id);
+            return null;
+        }
+        User result = DataAccessUtils.singleResult(jdbcTemplate.query(SQL_GET_BY_ID, RowMapper::mapRowToUser, id));
+        if (result == null) {
+            log.debug("UserDbStorage: Пользователь с ID - {} не найден.", id);
+            return null;
+        }
         log.debug("UserDbStorage: Получен пользователь с ID - {}.", result.getId());
 
         resultDbEditor.setFriends(result);
@@ -90,37 +215,97 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    public List<User> getByIds(List<Integer> ids) {
+        log.debug("UserDbStorage: Получен запрос к хранилищу на получение пользователей по списку ID размером {}.", ids.size());
+        List<Integer> presentIds = ids.stream()
+                .filter(userIds::contains)
+                .collect(Collectors.toList());
+        if (presentIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, User> found = new HashMap<>();
+        namedParameterJdbcTemplate.query(SQL_GET_BY_IDS, new MapSqlParameterSource("ids", presentIds), RowMapper::mapRowToUser)
+                .forEach(user -> found.put(user.getId(), user));
+        resultDbEditor.setFriends(new ArrayList<>(found.values()));
+        log.debug("UserDbStorage: Получено пользователей - {}.", found.size());
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<UserCard> getCardsByIds(List<Integer> ids) {
+        log.debug("UserDbStorage: Получен запрос к хранилищу на получение карточек пользователей по списку ID размером {}.", ids.size());
+        List<Integer> presentIds = ids.stream()
+                .filter(userIds::contains)
+                .collect(Collectors.toList());
+        if (presentIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, User> found = new HashMap<>();
+        namedParameterJdbcTemplate.query(SQL_GET_BY_IDS, new MapSqlParameterSource("ids", presentIds), RowMapper::mapRowToUser)
+                .forEach(user -> found.put(user.getId(), user));
+        log.debug("UserDbStorage: Получено карточек пользователей - {}.", found.size());
+
+        return resultDbEditor.toCards(ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    // Пользователь удаляется постоянным числом запросов независимо от количества его лайков и друзей
+    @Override
+    @Transactional
     public User delete(int id) {
-        //Удалаяем ссылку на пользователя из user_friends
         log.debug("UserDbStorage: Получен запрос к хранилищу на удаление пользователя с ID - {}.", id);
-        String sqlDeleteFriendship = "DELETE FROM user_friends WHERE friend_id = ?";
+        User deletedUser = get(id);
+        if (deletedUser == null) {
+            return null;
+        }
 
-        //Удалаяем ссылку на пользователя из user_friends
-        jdbcTemplate.update(sqlDeleteFriendship, id);
+        // Рекомендации меняются у тех, у кого пользователь в друзьях, и у тех, у кого в друзьях они.
+        // Их нужно найти до удаления записей о дружбе
+        Set<Integer> followers = resultDbEditor.getUsersByFriendIds(List.of(id));
+        Set<Integer> affectedSuggestions = new HashSet<>(followers);
+        affectedSuggestions.add(id);
+        affectedSuggestions.addAll(resultDbEditor.getUsersByFriendIds(followers));
+
+        //Удаляем записи о дружбе в обе стороны
+        jdbcTemplate.update(SQL_DELETE_FRIENDSHIPS, id, id);
+        TransactionCallbacks.afterCommit(() -> {
+            friendshipIndex.removeUser(id);
+            suggestionCache.invalidateAll(affectedSuggestions);
+        });
         log.debug("UserDbStorage: Удалены ссылки на пользователя с ID - {} из хранилища дружбы.", id);
 
-        //Удалаяем ссылку на пользователя из film_likes и обновляем rate у фильмов, которые понравились пользователю
-        String sqlGetLikedFilms = "SELECT film_id FROM film_likes WHERE user_id = ?";
-        List<Integer> likedFilms = jdbcTemplate.query(sqlGetLikedFilms, RowMapper::mapRowToLikedId, id);
-        likedFilms.forEach(filmId -> likesStorage.dislikeFilm(filmId, id));
-        String sqlDeleteLike = "DELETE FROM film_likes WHERE user_id = ?";
-        jdbcTemplate.update(sqlDeleteLike, id);
-        log.debug("UserDbStorage: Удалены ссылки на пользователя с ID - {} из хранилища лайков.", id);
+        //Удаляем лайки пользователя, получая ID понравившихся ему фильмов, и уменьшаем rate этих фильмов одним запросом
+        List<Integer> likedFilms = jdbcTemplate.query(SQL_DELETE_LIKES_RETURNING_FILMS, RowMapper::mapRowToLikedId, id);
+        if (!likedFilms.isEmpty()) {
+            namedParameterJdbcTemplate.update(SQL_DECREMENT_RATES, new MapSqlParameterSource("ids", likedFilms));
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            likedFilms.forEach(filmId -> popularityIndex.addRate(filmId, -1));
+            filmCache.invalidateAll(likedFilms);
+        });
+        log.debug("UserDbStorage: Удалены лайки пользователя с ID - {} у фильмов в количестве {}.", id, likedFilms.size());
 
         // Удаляем пользователя
-        String sqlDeleteUser = "DELETE FROM users WHERE user_id = ?";
-        User deletedUser = get(id);
-        jdbcTemplate.update(sqlDeleteUser, id);
+        jdbcTemplate.update(SQL_DELETE, id);
+        userIds.remove(id);
         log.debug("UserDbStorage: Удален пользователь с ID - {}.", deletedUser.getId());
 
         return deletedUser;
     }
 
+    // Наличие пользователя определяется по индексу ID без запроса к БД
     @Override
     public boolean validateDataExists(int id) {
-        log.debug("UserDbStorage: Поступил запрос сервиса на проверку наличия пользователя с ID {} в базе данных пользователей.", id);
-        int count = jdbcTemplate.queryForObject(SQL_VALIDATE_EXISTS, RowMapper::mapRowToCount, id);
-        log.debug("UserDbStorage: Получен ответ хранилища на запрос сервиса на проверку наличия пользователя с ID {} в базе данных пользователей. Наличие записей с нужным ID - {}", id, count);
-        return count != 0;
+        boolean exists = userIds.contains(id);
+        log.debug("UserDbStorage: Проверка наличия пользователя с ID {} по индексу ID - {}.", id, exists);
+        return exists;
     }
 }
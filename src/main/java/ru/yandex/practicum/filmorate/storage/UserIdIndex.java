@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Индекс ID сохраненных пользователей
+@Component
+public class UserIdIndex extends IdPresenceIndex {
+
+    @Autowired
+    public UserIdIndex(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "SELECT user_id FROM users");
+    }
+}
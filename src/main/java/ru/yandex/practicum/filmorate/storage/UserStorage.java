@@ -1,7 +1,15 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserCard;
+
+import java.util.List;
 
 public interface UserStorage extends Storage<User> {
 
+    // Получить карточки всех пользователей: ID друзей не загружаются, только их количество
+    List<UserCard> getAllCards();
+
+    // Получить карточки пользователей по списку ID в порядке списка
+    List<UserCard> getCardsByIds(List<Integer> ids);
 }
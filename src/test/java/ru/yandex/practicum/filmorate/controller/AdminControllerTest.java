@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.bytebuddy.utility.RandomString;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class AdminControllerTest {
+
+    private static final LocalDate RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    private static final MPA VALID_MPA = new MPA(1, "G");
+    private static final Film VALID_FILM = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+    private static final User VALID_USER = new User(1, "1@yandex.ru", "login", "name", LocalDate.of(1990, 1, 1));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Проверка статистики кэша фильмов после повторного получения фильма
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndHitOnGetFilmCacheStatsWhenFilmRequestedTwice() throws Exception {
+        //given
+        postValidFilm();
+        mockMvc.perform(get("/films/{id}", 1));
+        mockMvc.perform(get("/films/{id}", 1));
+
+        //when
+        mockMvc.perform(
+                        get("/admin/cache/films")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(1))
+                .andExpect(jsonPath("$.maxSize").value(10000))
+                .andExpect(jsonPath("$.hits").value(2))
+                .andExpect(jsonPath("$.evictions").value(0));
+    }
+
+    // Проверка обновления справочников жанров и рейтингов
+    @Test
+    public void shouldReturn204OnPostReferenceDataRefresh() throws Exception {
+        //when
+        mockMvc.perform(
+                        post("/admin/reference-data/refresh")
+                )
+
+                //then
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(
+                        get("/genres")
+                )
+                .andExpect(jsonPath("$.length()").value(6));
+    }
+
+    // Проверка пересчета rate фильмов по количеству лайков
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn204AndRateFromLikesOnPostRecomputeRates() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 5, VALID_MPA);
+        mockMvc.perform(
+                post("/films")
+                        .content(objectMapper.writeValueAsString(film))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        mockMvc.perform(
+                post("/users")
+                        .content(objectMapper.writeValueAsString(VALID_USER))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        mockMvc.perform(put("/films/{id}/like/{userId}", 1, 1))
+                .andExpect(jsonPath("$.rate").value(6));
+
+        //when
+        mockMvc.perform(
+                        post("/admin/likes/recompute-rates")
+                )
+
+                //then
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(
+                        get("/films/{id}", 1)
+                )
+                .andExpect(jsonPath("$.rate").value(1))
+                .andExpect(jsonPath("$.likes.length()").value(1));
+    }
+
+    // Проверка получения состояния очереди асинхронной записи
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndStatsOnGetIngestion() throws Exception {
+        //when
+        mockMvc.perform(
+                        get("/admin/ingestion")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queueDepth").value(0))
+                .andExpect(jsonPath("$.capacity").value(10000))
+                .andExpect(jsonPath("$.rejected").value(0))
+                .andExpect(jsonPath("$.lagMillis").value(0));
+    }
+
+    private void postValidFilm() throws Exception {
+        mockMvc.perform(
+                post("/films")
+                        .content(objectMapper.writeValueAsString(VALID_FILM))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+    }
+}
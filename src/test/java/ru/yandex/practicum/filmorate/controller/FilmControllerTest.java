@@ -10,8 +10,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MPA;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,8 +21,12 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -446,6 +452,30 @@ public class FilmControllerTest {
                 .andExpect(jsonPath("$.length()").value(0));
     }
 
+    // Проверка получения удаленного фильма и фильма с отрицательным id (ожидается статус 404 Not Found)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn404OnGetFilmWhenFilmDeletedOrNegativeId() throws Exception {
+        //given
+        postValidFilm();
+        mockMvc.perform(delete("/films/{id}", 1))
+                .andExpect(status().isOk());
+
+        //when
+        mockMvc.perform(
+                        get("/films/{id}", 1)
+                )
+
+                //then
+                .andExpect(status().isNotFound())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof FilmDoesNotExistException));
+
+        mockMvc.perform(
+                        get("/films/{id}", -5)
+                )
+                .andExpect(status().isNotFound());
+    }
+
     // Проверка удаления фильма по неправильному id (ожидается статус 404 Not Found и FilmDoesNotExistException)
     @Test
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
@@ -471,6 +501,535 @@ public class FilmControllerTest {
                 .andExpect(jsonPath("$.length()").value(1));
     }
 
+    // Проверка получения списка всех фильмов вместе с их жанрами
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andListWithGenresOnGetAllWhenFilmsWithGenres() throws Exception {
+        //given
+        postValidFilm();
+        Film filmWithGenres = new Film(2, "film with genres", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        filmWithGenres.setGenre(Set.of(new Genre(2, "Драма"), new Genre(1, "Комедия")));
+        mockMvc.perform(
+                post("/films")
+                        .content(objectMapper.writeValueAsString(filmWithGenres))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].genres.length()").value(0))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[1].genres.length()").value(2))
+                .andExpect(jsonPath("$[1].genres[0].id").value(1))
+                .andExpect(jsonPath("$[1].genres[0].name").value("Комедия"))
+                .andExpect(jsonPath("$[1].genres[1].id").value(2))
+                .andExpect(jsonPath("$[1].mpa.name").value("G"));
+    }
+
+    // Проверка постраничного получения фильмов
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andPageOnGetFilmsWithLimit() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films?limit=2")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.items[1].mpa.name").value("G"))
+                .andExpect(jsonPath("$.nextCursor").value(2));
+
+        mockMvc.perform(
+                        get("/films?limit=2&after=2")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    // Проверка постраничного получения фильмов с неправильным размером страницы (ожидается статус 400 Bad Request и IncorrectParameterException)
+    @Test
+    public void shouldReturn400OnGetFilmsWhenInvalidLimit() throws Exception {
+        //when
+        mockMvc.perform(
+                        get("/films?limit=0")
+                )
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
+    // Проверка потоковой выгрузки всех фильмов в формате NDJSON
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andNdjsonOnGetExport() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+
+        //when
+        MvcResult result = mockMvc.perform(
+                        get("/films/export")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Film film = objectMapper.readValue(lines[i], Film.class);
+            assertEquals(i + 1, film.getId());
+            assertEquals("film", film.getName());
+            assertEquals("G", film.getMpa().getName());
+        }
+    }
+
+    // Проверка добавления фильма с несуществующим рейтингом (ожидается статус 404 Not Found и MpaDoesNotExistException)
+    @Test
+    public void shouldReturn404OnPostFilmWhenInvalidMpaId() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, new MPA(6, "NC-21"));
+
+        //when
+        mockMvc.perform(
+                        post("/films")
+                                .content(objectMapper.writeValueAsString(film))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isNotFound())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof MpaDoesNotExistException))
+                .andExpect(result -> assertEquals("MpaService: Рейтинга c таким ID не существует.",
+                        result.getResolvedException().getMessage()));
+    }
+
+    // Проверка добавления фильма с несуществующим жанром (ожидается статус 404 Not Found и GenreDoesNotExistException)
+    @Test
+    public void shouldReturn404OnPostFilmWhenInvalidGenreId() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        film.setGenre(Set.of(new Genre(7, "Вестерн")));
+
+        //when
+        mockMvc.perform(
+                        post("/films")
+                                .content(objectMapper.writeValueAsString(film))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isNotFound())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof GenreDoesNotExistException));
+    }
+
+    // Проверка получения списка всех фильмов только с запрошенными полями
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andProjectedListOnGetAllWithFields() throws Exception {
+        //given
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("fields", "id,name,likesCount")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("film"))
+                .andExpect(jsonPath("$[0].likesCount").value(0))
+                .andExpect(jsonPath("$[0].likes").doesNotExist())
+                .andExpect(jsonPath("$[0].genres").doesNotExist())
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    // Проверка получения фильмов по списку ID только с запрошенными полями
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andProjectedFilmsOnGetByIdsWithFields() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("ids", "2,5")
+                                .param("fields", "id,name")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[0].name").value("film"))
+                .andExpect(jsonPath("$.items[0].description").doesNotExist())
+                .andExpect(jsonPath("$.items[0].mpa").doesNotExist())
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+    }
+
+    // Проверка постраничного получения фильмов только с запрошенными полями
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andProjectedPageOnGetFilmsWithLimitAndFields() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("limit", "1")
+                                .param("fields", "id,name")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("film"))
+                .andExpect(jsonPath("$.items[0].description").doesNotExist())
+                .andExpect(jsonPath("$.items[0].likes").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    // Проверка получения фильма с неизвестным полем в параметре fields (ожидается статус 400 Bad Request и IncorrectParameterException)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn400OnGetFilmWhenUnknownField() throws Exception {
+        //given
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films/{id}", 1)
+                                .param("fields", "id,budget")
+                )
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
+    // Проверка получения фильмов по списку ID с отсутствующими ID
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andFilmsWithMissingIdsOnGetByIds() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("ids", "2,5,1,2")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[1].id").value(1))
+                .andExpect(jsonPath("$.missingIds.length()").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+    }
+
+    // Проверка получения фильмов по слишком длинному списку ID (ожидается статус 400 Bad Request и IncorrectParameterException)
+    @Test
+    public void shouldReturn400OnGetByIdsWhenTooManyIds() throws Exception {
+        //given
+        String ids = IntStream.rangeClosed(1, 1001)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("ids", ids)
+                )
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
+    // Проверка обновления жанров фильма: часть жанров удаляется, часть добавляется
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andUpdatedGenresOnPutFilmWithChangedGenres() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        film.setGenre(Set.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+        mockMvc.perform(
+                post("/films")
+                        .content(objectMapper.writeValueAsString(film))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        Film updatedFilm = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        updatedFilm.setGenre(Set.of(new Genre(2, "Драма"), new Genre(3, "Мультфильм")));
+
+        //when
+        mockMvc.perform(
+                        put("/films")
+                                .content(objectMapper.writeValueAsString(updatedFilm))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres.length()").value(2))
+                .andExpect(jsonPath("$.genres[0].id").value(2))
+                .andExpect(jsonPath("$.genres[1].id").value(3));
+
+        mockMvc.perform(
+                        get("/films/{id}", 1)
+                )
+                .andExpect(jsonPath("$.genres.length()").value(2))
+                .andExpect(jsonPath("$.genres[0].id").value(2))
+                .andExpect(jsonPath("$.genres[1].id").value(3));
+    }
+
+    // Проверка ответа на добавление фильма: названия рейтинга и жанров берутся из справочника, а не из запроса
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andReferenceNamesOnPostFilm() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, new MPA(2, null));
+        film.setGenre(Set.of(new Genre(6, null)));
+
+        //when
+        mockMvc.perform(
+                        post("/films")
+                                .content(objectMapper.writeValueAsString(film))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.mpa.name").value("PG"))
+                .andExpect(jsonPath("$.genres[0].name").value("Боевик"))
+                .andExpect(jsonPath("$.likes.length()").value(0));
+    }
+
+    // Проверка пакетного добавления фильмов из JSON-массива с ошибочными элементами
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andItemResultsOnPostFilmsBulk() throws Exception {
+        //given
+        Film filmWithGenres = new Film(null, "film with genres", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        filmWithGenres.setGenre(Set.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+        Film filmWithInvalidMpa = new Film(null, "film", RandomString.make(200), RELEASE_DATE, 1, 0, new MPA(9, "X"));
+        Film filmWithInvalidDate = new Film(null, "film", RandomString.make(200), LocalDate.of(1800, 1, 1), 1, 0, VALID_MPA);
+        List<Film> films = List.of(VALID_FILM, filmWithInvalidMpa, filmWithGenres, filmWithInvalidDate);
+
+        //when
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(objectMapper.writeValueAsString(films))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[1].id").doesNotExist())
+                .andExpect(jsonPath("$.items[1].error").value("MpaService: Рейтинга c таким ID не существует."))
+                .andExpect(jsonPath("$.items[2].id").value(2))
+                .andExpect(jsonPath("$.items[3].error").exists());
+
+        mockMvc.perform(
+                        get("/films/{id}", 2)
+                )
+                .andExpect(jsonPath("$.name").value("film with genres"))
+                .andExpect(jsonPath("$.genres.length()").value(2));
+    }
+
+    // Проверка пакетного добавления фильмов из NDJSON со строкой некорректного JSON
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andItemResultsOnPostFilmsBulkNdjson() throws Exception {
+        //given
+        String body = objectMapper.writeValueAsString(VALID_FILM) + "\n"
+                + "{\"name\": \n"
+                + "\n"
+                + objectMapper.writeValueAsString(VALID_FILM) + "\n";
+
+        //when
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(body)
+                                .contentType("application/x-ndjson")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[1].error").value("FilmController: Некорректный JSON фильма."))
+                .andExpect(jsonPath("$.items[2].id").value(2));
+
+        mockMvc.perform(
+                        get("/films")
+                )
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    // Проверка количества лайков у фильмов, которых больше, чем ID в одном условии IN (...)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andLikesCountOfAllChunksOnGetAllWithFields() throws Exception {
+        //given
+        List<Film> films = IntStream.range(0, 1001)
+                .mapToObj(i -> VALID_FILM)
+                .collect(Collectors.toList());
+        mockMvc.perform(
+                post("/films/bulk")
+                        .content(objectMapper.writeValueAsString(films))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        mockMvc.perform(
+                post("/users")
+                        .content("{\"email\": \"1@yandex.ru\", \"login\": \"login\", \"name\": \"name\", \"birthday\": \"2000-01-01\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        mockMvc.perform(
+                put("/films/{id}/like/{userId}", 1, 1)
+        );
+
+        //when
+        mockMvc.perform(
+                        get("/films")
+                                .param("fields", "id,likesCount")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1001))
+                .andExpect(jsonPath("$[0].likesCount").value(1))
+                .andExpect(jsonPath("$[1000].likesCount").value(0));
+    }
+
+    // Проверка пакетного добавления фильмов с пустыми элементами в JSON-массиве и NDJSON
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andItemErrorsOnPostFilmsBulkWithNullFilms() throws Exception {
+        //given
+        String array = "[" + objectMapper.writeValueAsString(VALID_FILM) + ", null]";
+        String ndjson = "null\n" + objectMapper.writeValueAsString(VALID_FILM) + "\n";
+
+        //when
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(array)
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[1].error").value("FilmController: Фильм не может быть пустым."));
+
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(ndjson)
+                                .contentType("application/x-ndjson")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].error").value("FilmController: Фильм не может быть пустым."))
+                .andExpect(jsonPath("$.items[1].id").value(2));
+    }
+
+    // Проверка пакетного добавления фильмов из JSON-массива с элементом неверного типа и некорректным телом запроса
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnItemErrorOnBadElementAnd400OnMalformedArrayOnPostFilmsBulk() throws Exception {
+        //given
+        String array = "[{\"name\": \"film\", \"duration\": \"long\"}, " + objectMapper.writeValueAsString(VALID_FILM) + "]";
+
+        //when
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(array)
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].error").value("FilmController: Некорректный JSON фильма."))
+                .andExpect(jsonPath("$.items[1].id").value(1));
+
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(objectMapper.writeValueAsString(VALID_FILM))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content("[" + objectMapper.writeValueAsString(VALID_FILM) + ", {\"name\": ")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
+    // Проверка пакетного добавления фильмов из JSON-массива длиннее лимита (ожидается статус 400 Bad Request и IncorrectParameterException)
+    @Test
+    public void shouldReturn400OnPostFilmsBulkWhenTooManyFilms() throws Exception {
+        //given
+        String array = IntStream.rangeClosed(1, 100_001)
+                .mapToObj(i -> "null")
+                .collect(Collectors.joining(",", "[", "]"));
+
+        //when
+        mockMvc.perform(
+                        post("/films/bulk")
+                                .content(array)
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
     private void postValidFilm() throws Exception {
         mockMvc.perform(
                 post("/films")
@@ -9,12 +9,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exceptions.IncorrectPathVariableException;
 import ru.yandex.practicum.filmorate.exceptions.UserDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -239,6 +241,23 @@ public class FriendsControllerTest {
                 .andExpect(jsonPath("$[0].friends.length()").value(0));
     }
 
+    // Проверка получения пустого списка друзей у существующего пользователя без друзей
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndEmptyListOnGetFriendsWhenUserHasNoFriends() throws Exception {
+        //given
+        postValidUser();
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends", 1)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(0));
+    }
+
     // Проверка получения списка всех друзей по неправильному id (ожидается статус 404 Not Found и UserDoesNotExistException)
     @Test
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
@@ -346,6 +365,281 @@ public class FriendsControllerTest {
                         result.getResolvedException().getMessage()));
     }
 
+    // Проверка списков друзей и общих друзей после добавления в произвольном порядке и удаления из друзей
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnSortedFriendsAndCommonFriendsAfterAddAndDelete() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 4);
+        putFriend(1, 2);
+        putFriend(1, 3);
+        putFriend(2, 4);
+        putFriend(2, 3);
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                )
+                .andExpect(jsonPath("$[*].id").value(contains(3, 4)));
+
+        //when
+        mockMvc.perform(
+                        delete("/users/{id}/friends/{friendId}", 1, 3)
+                )
+
+                //then
+                .andExpect(status().isOk());
+
+        mockMvc.perform(
+                        get("/users/{id}/friends", 1)
+                )
+                .andExpect(jsonPath("$[*].id").value(contains(2, 4)))
+                .andExpect(jsonPath("$[1].friends.length()").value(0));
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                )
+                .andExpect(jsonPath("$[*].id").value(contains(4)));
+        mockMvc.perform(
+                        get("/users/{id}", 1)
+                )
+                .andExpect(jsonPath("$.friends.length()").value(2));
+    }
+
+    // Проверка получения количества общих друзей
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndCountOnGetCommonFriendsWithCountOnly() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 3);
+        putFriend(1, 4);
+        putFriend(2, 3);
+        putFriend(2, 4);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                                .param("countOnly", "true")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.otherId").value(2))
+                .andExpect(jsonPath("$.count").value(2));
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 9)
+                                .param("countOnly", "true")
+                )
+                .andExpect(status().isNotFound());
+    }
+
+    // Проверка рекомендаций друзей: друзья друзей по убыванию количества общих друзей без самого пользователя и его друзей
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndRankedSuggestionsOnGetSuggestions() throws Exception {
+        //given
+        for (int i = 0; i < 6; i++) {
+            postValidUser();
+        }
+        putFriend(1, 2);
+        putFriend(1, 3);
+        putFriend(2, 1);
+        putFriend(2, 3);
+        putFriend(2, 4);
+        putFriend(2, 5);
+        putFriend(3, 5);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].user.id").value(contains(5, 4)))
+                .andExpect(jsonPath("$[*].mutualFriends").value(contains(2, 1)));
+
+        // Новая дружба сбрасывает кэш рекомендаций
+        putFriend(3, 6);
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                                .param("limit", "2")
+                )
+                .andExpect(jsonPath("$[*].user.id").value(contains(5, 4)));
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+                .andExpect(jsonPath("$[*].user.id").value(contains(5, 4, 6)));
+    }
+
+    // Проверка рекомендаций друзей с неправильными параметрами (ожидаются статусы 400 и 404)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn400Or404OnGetSuggestionsWhenInvalidRequest() throws Exception {
+        //given
+        postValidUser();
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                                .param("limit", "0")
+                )
+
+                //then
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(0));
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 9)
+                )
+                .andExpect(status().isNotFound());
+    }
+
+    // Проверка получения карточек друзей: вместо ID друзей каждого друга только их количество
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndCardsOnGetFriendsWithShallow() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 3);
+        putFriend(1, 4);
+        putFriend(2, 3);
+        putFriend(3, 1);
+        putFriend(3, 2);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends", 1)
+                                .param("shallow", "true")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(3, 4)))
+                .andExpect(jsonPath("$[*].friendsCount").value(contains(2, 0)))
+                .andExpect(jsonPath("$[0].login").value(VALID_USER.getLogin()))
+                .andExpect(jsonPath("$[0].friends").doesNotExist());
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                                .param("shallow", "true")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(3)))
+                .andExpect(jsonPath("$[0].friendsCount").value(2));
+
+        mockMvc.perform(
+                        get("/users")
+                                .param("shallow", "true")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].friendsCount").value(contains(2, 1, 2, 0)))
+                .andExpect(jsonPath("$[0].friends").doesNotExist());
+
+        mockMvc.perform(
+                        get("/users/{id}/friends", 9)
+                                .param("shallow", "true")
+                )
+                .andExpect(status().isNotFound());
+    }
+
+    // Проверка подсчета общих друзей с несколькими пользователями за один запрос
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndCountsOnGetCommonFriendsWithIds() throws Exception {
+        //given
+        for (int i = 0; i < 5; i++) {
+            postValidUser();
+        }
+        putFriend(1, 4);
+        putFriend(1, 5);
+        putFriend(2, 4);
+        putFriend(2, 5);
+        putFriend(3, 5);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/common", 1)
+                                .param("ids", "3,2,9,4,2")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].otherId").value(contains(3, 2, 4)))
+                .andExpect(jsonPath("$[*].count").value(contains(1, 2, 0)))
+                .andExpect(jsonPath("$[0].userId").value(1));
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common", 9)
+                                .param("ids", "1,2")
+                )
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common", 1)
+                                .param("ids", "")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    // Проверка обновления закэшированных рекомендаций при изменении друзей у друга пользователя и удалении пользователя
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndUpdatedSuggestionsWhenFriendOfFriendChanges() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 2);
+        putFriend(2, 3);
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+                .andExpect(jsonPath("$[*].user.id").value(contains(3)));
+
+        //when
+        putFriend(2, 4);
+        mockMvc.perform(delete("/users/{id}", 3));
+
+        //then
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].user.id").value(contains(4)));
+    }
+
+    // Проверка запроса общих друзей одновременно с shallow и countOnly (ожидается статус 400 Bad Request)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn400OnGetCommonFriendsWithShallowAndCountOnly() throws Exception {
+        //given
+        postValidUser();
+        postValidUser();
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                                .param("shallow", "true")
+                                .param("countOnly", "true")
+                )
+
+                //then
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectParameterException));
+    }
+
     private void postValidUser() throws Exception {
         mockMvc.perform(
                 post("/users")
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Друзья и общие друзья при отключенном индексе дружбы читаются из БД
+@SpringBootTest(properties = "filmorate.friends.index-enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class FriendsWithoutIndexControllerTest {
+
+    private static final LocalDate BIRTHDAY = LocalDate.now().minusDays(1);
+    private static final User VALID_USER = new User(1, "1@yandex.ru", "login", "name", BIRTHDAY);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Проверка получения списка друзей, общих друзей и их количества
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnFriendsAndCommonFriendsFromDatabase() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 4);
+        putFriend(1, 3);
+        putFriend(2, 3);
+        putFriend(2, 4);
+        putFriend(3, 1);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends", 1)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(3, 4)))
+                .andExpect(jsonPath("$[0].friends.length()").value(1));
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(3, 4)));
+
+        mockMvc.perform(
+                        get("/users/{id}/friends/common/{otherId}", 1, 2)
+                                .param("countOnly", "true")
+                )
+                .andExpect(jsonPath("$.count").value(2));
+
+        mockMvc.perform(
+                        get("/users/{id}", 1)
+                )
+                .andExpect(jsonPath("$.friends.length()").value(2));
+    }
+
+    // Проверка рекомендаций друзей, посчитанных запросом к БД
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnSuggestionsFromDatabase() throws Exception {
+        //given
+        for (int i = 0; i < 5; i++) {
+            postValidUser();
+        }
+        putFriend(1, 2);
+        putFriend(1, 3);
+        putFriend(2, 4);
+        putFriend(2, 5);
+        putFriend(3, 5);
+        putFriend(3, 1);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/suggestions", 1)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].user.id").value(contains(5, 4)))
+                .andExpect(jsonPath("$[*].mutualFriends").value(contains(2, 1)));
+    }
+
+    // Проверка карточек друзей с количеством друзей, посчитанным запросом к БД
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnFriendCardsFromDatabase() throws Exception {
+        //given
+        for (int i = 0; i < 3; i++) {
+            postValidUser();
+        }
+        putFriend(1, 2);
+        putFriend(1, 3);
+        putFriend(2, 1);
+        putFriend(2, 3);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends", 1)
+                                .param("shallow", "true")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(2, 3)))
+                .andExpect(jsonPath("$[*].friendsCount").value(contains(2, 0)))
+                .andExpect(jsonPath("$[0].friends").doesNotExist());
+
+        mockMvc.perform(
+                        get("/users")
+                                .param("shallow", "true")
+                )
+                .andExpect(jsonPath("$[*].friendsCount").value(contains(2, 2, 0)));
+    }
+
+    // Проверка подсчета общих друзей с несколькими пользователями запросом к БД
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturnMutualFriendCountsFromDatabase() throws Exception {
+        //given
+        for (int i = 0; i < 4; i++) {
+            postValidUser();
+        }
+        putFriend(1, 3);
+        putFriend(1, 4);
+        putFriend(2, 3);
+        putFriend(2, 4);
+
+        //when
+        mockMvc.perform(
+                        get("/users/{id}/friends/common", 1)
+                                .param("ids", "2,3")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].otherId").value(contains(2, 3)))
+                .andExpect(jsonPath("$[*].count").value(contains(2, 0)));
+    }
+
+    private void postValidUser() throws Exception {
+        mockMvc.perform(
+                post("/users")
+                        .content(objectMapper.writeValueAsString(VALID_USER))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+    }
+
+    private void putFriend(Integer id, Integer friendId) throws Exception {
+        mockMvc.perform(
+                put("/users/{id}/friends/{friendId}", id, friendId)
+        );
+    }
+}
@@ -12,11 +12,13 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -142,10 +144,10 @@ public class LikesControllerTest {
                 .andExpect(jsonPath("$.mpa.name").value("G"));
     }
 
-    // Проверка удаления лайка у фильма, которому пользователь лайк не ставил (ожидается статус 400 Bad Request и IncorrectPathVariableException)
+    // Проверка удаления лайка у фильма, которому пользователь лайк не ставил (удаление идемпотентно, ожидается статус 200 OK без изменения rate)
     @Test
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
-    public void shouldReturn400OnDeleteLikeWhenUserDidNotLike() throws Exception {
+    public void shouldReturn200AndUnchangedFilmOnDeleteLikeWhenUserDidNotLike() throws Exception {
         //given
         postValidFilm();
         postValidUser();
@@ -158,10 +160,63 @@ public class LikesControllerTest {
                 )
 
                 //then
-                .andExpect(status().isBadRequest())
-                .andExpect(result -> assertTrue(result.getResolvedException() instanceof IncorrectPathVariableException))
-                .andExpect(result -> assertEquals("LikesService: Пользователь с id 1 попытался удалить лайк у фильма с id 1, которому он не ставил лайк.",
-                        result.getResolvedException().getMessage()));
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(0))
+                .andExpect(jsonPath("$.rate").value(0));
+    }
+
+    // Проверка повторного лайка фильма (лайк идемпотентен, ожидается статус 200 OK и один лайк)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndSingleLikeOnPutLikeTwice() throws Exception {
+        //given
+        postValidFilm();
+        postValidUser();
+        Integer filmId = 1;
+        Integer userId = 1;
+        putValidLike(filmId, userId);
+
+        //when
+        mockMvc.perform(
+                        put("/films/{id}/like/{userId}", filmId, userId)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(1))
+                .andExpect(jsonPath("$.rate").value(1));
+    }
+
+    // Проверка лайка и удаления лайка с кратким ответом
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndLikeResultOnCompactLikeAndDislike() throws Exception {
+        //given
+        postValidFilm();
+        postValidUser();
+        Integer filmId = 1;
+        Integer userId = 1;
+
+        //when
+        mockMvc.perform(
+                        put("/films/{id}/like/{userId}", filmId, userId)
+                                .param("compact", "true")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.filmId").value(1))
+                .andExpect(jsonPath("$.likesCount").value(1))
+                .andExpect(jsonPath("$.liked").value(true))
+                .andExpect(jsonPath("$.name").doesNotExist());
+
+        mockMvc.perform(
+                        delete("/films/{id}/like/{userId}", filmId, userId)
+                                .param("compact", "true")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(0))
+                .andExpect(jsonPath("$.liked").value(false));
     }
 
     // Проверка удаление лайка у фильма с неправильным id фильма (ожидается статус 404 Not Found и FilmDoesNotExistException)
@@ -232,6 +287,64 @@ public class LikesControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(List.of(VALID_FILM))));
     }
 
+    // Проверка порядка списка самых популярных фильмов после лайков и удаления лайка
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andOrderedListOnGetPopularAfterLikes() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+        postValidFilm();
+        postValidUser();
+        postValidUser();
+        putValidLike(3, 1);
+        putValidLike(3, 2);
+        putValidLike(2, 1);
+        putValidLike(1, 1);
+        mockMvc.perform(
+                delete("/films/{id}/like/{userId}", 1, 1)
+        );
+
+        //when
+        mockMvc.perform(
+                        get("/films/popular")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].likes.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[2].id").value(1))
+                .andExpect(jsonPath("$[2].rate").value(0));
+    }
+
+    // Проверка получения списка самых популярных фильмов только с количеством лайков
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andProjectedListOnGetPopularWithFields() throws Exception {
+        //given
+        postValidFilm();
+        postValidUser();
+        putValidLike(1, 1);
+
+        //when
+        mockMvc.perform(
+                        get("/films/popular")
+                                .param("fields", "id,mpa,likesCount")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].mpa.name").value("G"))
+                .andExpect(jsonPath("$[0].likesCount").value(1))
+                .andExpect(jsonPath("$[0].likes").doesNotExist())
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+    }
+
     // Проверка получения списка самых популярных фильмов без параметра запросов
     @Test
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
@@ -279,6 +392,144 @@ public class LikesControllerTest {
                         result.getResolvedException().getMessage()));
     }
 
+    // Проверка асинхронного лайка: запрос принимается со статусом 202, лайк появляется после обработки очереди
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn202AndApplyLikeOnAsyncPutLike() throws Exception {
+        //given
+        postValidFilm();
+        postValidUser();
+        Integer filmId = 1;
+        Integer userId = 1;
+
+        //when
+        mockMvc.perform(
+                        put("/films/{id}/like/{userId}", filmId, userId)
+                                .param("async", "true")
+                )
+
+                //then
+                .andExpect(status().isAccepted());
+
+        awaitIngestionApplied(1);
+        mockMvc.perform(
+                        get("/films/{id}", filmId)
+                )
+                .andExpect(jsonPath("$.likes[0]").value(1))
+                .andExpect(jsonPath("$.rate").value(1));
+    }
+
+    // Проверка асинхронного лайка несуществующему фильму (ожидается статус 404 Not Found до постановки в очередь)
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn404OnAsyncPutLikeWhenInvalidFilmId() throws Exception {
+        //given
+        postValidUser();
+
+        //when
+        mockMvc.perform(
+                        put("/films/{id}/like/{userId}", 9999, 1)
+                                .param("async", "true")
+                )
+
+                //then
+                .andExpect(status().isNotFound())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof FilmDoesNotExistException));
+    }
+
+    // Проверка удаления пользователя: его лайки и записи о дружбе удаляются, rate понравившихся фильмов уменьшается
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldRemoveLikesAndFriendshipsOnDeleteUser() throws Exception {
+        //given
+        postValidFilm();
+        postValidFilm();
+        postValidUser();
+        postValidUser();
+        putValidLike(1, 1);
+        putValidLike(2, 1);
+        putValidLike(1, 2);
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 1, 2));
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 2, 1));
+
+        //when
+        mockMvc.perform(
+                        delete("/users/{id}", 1)
+                )
+
+                //then
+                .andExpect(status().isOk());
+
+        mockMvc.perform(
+                        get("/films/{id}", 1)
+                )
+                .andExpect(jsonPath("$.rate").value(1))
+                .andExpect(jsonPath("$.likes.length()").value(1))
+                .andExpect(jsonPath("$.likes[0]").value(2));
+        mockMvc.perform(
+                        get("/films/{id}", 2)
+                )
+                .andExpect(jsonPath("$.rate").value(0))
+                .andExpect(jsonPath("$.likes.length()").value(0));
+        mockMvc.perform(
+                        get("/films/popular")
+                )
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].rate").value(1));
+        mockMvc.perform(
+                        get("/users/{id}/friends", 2)
+                )
+                .andExpect(jsonPath("length()").value(0));
+    }
+
+    // Проверка удаления фильма с жанрами и лайками: ответ содержит удаленные жанры, лайки и rate
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200AndFullFilmOnDeleteFilmWithGenresAndLikes() throws Exception {
+        //given
+        Film film = new Film(1, "film", RandomString.make(200), RELEASE_DATE, 1, 0, VALID_MPA);
+        film.setGenre(Set.of(new Genre(2, "Драма"), new Genre(1, "Комедия")));
+        mockMvc.perform(
+                post("/films")
+                        .content(objectMapper.writeValueAsString(film))
+                        .contentType(MediaType.APPLICATION_JSON)
+        );
+        postValidUser();
+        putValidLike(1, 1);
+
+        //when
+        mockMvc.perform(
+                        delete("/films/{id}", 1)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.rate").value(1))
+                .andExpect(jsonPath("$.likes[0]").value(1))
+                .andExpect(jsonPath("$.mpa.name").value("G"))
+                .andExpect(jsonPath("$.genres.length()").value(2))
+                .andExpect(jsonPath("$.genres[0].name").value("Комедия"))
+                .andExpect(jsonPath("$.genres[1].name").value("Драма"));
+
+        mockMvc.perform(
+                        get("/films/popular")
+                )
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    private void awaitIngestionApplied(int applied) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String body = mockMvc.perform(get("/admin/ingestion")).andReturn().getResponse().getContentAsString();
+            if (objectMapper.readTree(body).get("applied").asInt() >= applied) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Очередь асинхронной записи не обработана за 5 секунд.");
+    }
+
     private void postValidFilm() throws Exception {
         mockMvc.perform(
                 post("/films")
@@ -10,7 +10,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.exceptions.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -457,6 +459,124 @@ public class UserControllerTest {
                 .andExpect(jsonPath("length()").value(1));
     }
 
+    // Проверка постраничного получения пользователей
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andPageOnGetUsersWithLimit() throws Exception {
+        //given
+        postValidUser();
+        postValidUser();
+        mockMvc.perform(
+                put("/users/{id}/friends/{friendId}", 1, 2)
+        );
+
+        //when
+        mockMvc.perform(
+                        get("/users?limit=1")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[0].friends[0]").value(2))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        mockMvc.perform(
+                        get("/users?limit=1&after=1")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    // Проверка получения пользователей по списку ID с отсутствующими ID
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andUsersWithMissingIdsOnGetByIds() throws Exception {
+        //given
+        postValidUser();
+        postValidUser();
+        mockMvc.perform(
+                put("/users/{id}/friends/{friendId}", 2, 1)
+        );
+
+        //when
+        mockMvc.perform(
+                        get("/users")
+                                .param("ids", "3,2")
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[0].friends[0]").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(3));
+    }
+
+    // Проверка импорта пользователей с дружбой в ID клиента
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200andIdMappingOnPostUsersBulk() throws Exception {
+        //given
+        postValidUser();
+        User first = new User(100, "100@yandex.ru", "first", "", BIRTHDAY);
+        User invalid = new User(200, "invalid", "second", "second", BIRTHDAY);
+        User third = new User(300, "300@yandex.ru", "third", "third", BIRTHDAY);
+        UserImportRequest request = new UserImportRequest(List.of(first, invalid, third), List.of(
+                new FriendshipEdge(100, 300),
+                new FriendshipEdge(300, 200),
+                new FriendshipEdge(100, 300)));
+
+        //when
+        mockMvc.perform(
+                        post("/users/bulk")
+                                .content(objectMapper.writeValueAsString(request))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.created").value(2))
+                .andExpect(jsonPath("$.users.failed").value(1))
+                .andExpect(jsonPath("$.users.items[1].error").exists())
+                .andExpect(jsonPath("$.ids.100").value(2))
+                .andExpect(jsonPath("$.ids.300").value(3))
+                .andExpect(jsonPath("$.ids.200").doesNotExist())
+                .andExpect(jsonPath("$.friendships.created").value(1))
+                .andExpect(jsonPath("$.friendships.failed").value(2))
+                .andExpect(jsonPath("$.friendships.items[1].error").value("UserService: Пользователь из записи о дружбе не был добавлен."))
+                .andExpect(jsonPath("$.friendships.items[2].error").value("UserService: Запись о дружбе повторяется."));
+
+        mockMvc.perform(
+                        get("/users/{id}", 2)
+                )
+                .andExpect(jsonPath("$.name").value("first"))
+                .andExpect(jsonPath("$.friends[0]").value(3));
+    }
+
+    // Проверка импорта пользователей с явно пустым списком дружбы
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldReturn200OnPostUsersBulkWithNullFriendships() throws Exception {
+        //given
+        String body = "{\"users\": [" + objectMapper.writeValueAsString(VALID_USER) + "], \"friendships\": null}";
+
+        //when
+        mockMvc.perform(
+                        post("/users/bulk")
+                                .content(body)
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+
+                //then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.created").value(1))
+                .andExpect(jsonPath("$.friendships.created").value(0));
+    }
+
     private void postValidUser() throws Exception {
         mockMvc.perform(
                 post("/users")